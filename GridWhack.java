@@ -24,6 +24,7 @@ import gridwhack.gui.character.player.ExperienceDisplay;
 import gridwhack.gui.character.HealthDisplay;
 //import gridwhack.gameobject.Camera;
 import gridwhack.gui.character.player.PlayerDetails;
+import gridwhack.render.RenderSnapshot;
 import gridwhack.gameobject.map.Map.MapType;
 
 /**
@@ -47,7 +48,17 @@ public class GridWhack extends Game
 	 */
 	public GridWhack(long period)
 	{
-		super("GridWhack", period);
+		this(period, false);
+	}
+
+	/**
+	 * Creates the game.
+	 * @param period the update period.
+	 * @param decoupled whether to update and draw on separate threads.
+	 */
+	public GridWhack(long period, boolean decoupled)
+	{
+		super("GridWhack", period, decoupled);
 	}
 	
 	/**
@@ -293,6 +304,43 @@ public class GridWhack extends Game
 		gui.draw(g);
 	}
 
+	/**
+	 * Creates an immutable copy of the map to draw after an update.
+	 * Only the part of the map that fits in the window is copied.
+	 * @param tick The number of the update.
+	 * @return The snapshot.
+	 */
+	@Override
+	public RenderSnapshot createRenderSnapshot(long tick)
+	{
+		Grid grid = map.getGrid();
+		Window window = getGameWindow();
+
+		// Without a window there is nothing to fit, copy the whole map.
+		if (window == null)
+		{
+			return grid.createRenderSnapshot(tick, grid.getViewport(grid.getWidthInCells(), grid.getHeightInCells()));
+		}
+
+		int cellSize = grid.getCellSize();
+
+		return grid.createRenderSnapshot(tick, grid.getViewport(window.getWidth() / cellSize + 1,
+				window.getHeight() / cellSize + 1));
+	}
+
+	/**
+	 * Draws a render snapshot of the map and the gui on top of it.
+	 * The gui is drawn from the game objects themselves, its message logs are safe to read while the game updates.
+	 * @param g The graphics context.
+	 * @param snapshot The snapshot.
+	 */
+	@Override
+	public void drawSnapshot(Graphics2D g, RenderSnapshot snapshot)
+	{
+		super.drawSnapshot(g, snapshot);
+		gui.draw(g);
+	}
+
 	public void sqlLiteTest() throws Exception
 	{
 		Class.forName("org.sqlite.JDBC");
@@ -330,8 +378,10 @@ public class GridWhack extends Game
 		int fps = DEFAULT_FPS;
 		long period = (long) 1000.0/fps;
 		
-		System.out.println("fps: " + fps + "; period: " + period + " ms");
+		boolean decoupled = args.length > 0 && args[0].equals("decoupled");
+
+		System.out.println("fps: " + fps + "; period: " + period + " ms" + (decoupled ? "; decoupled" : ""));
 		
-		new GridWhack(period*1000000L); // ms -> ns
+		new GridWhack(period*1000000L, decoupled); // ms -> ns
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
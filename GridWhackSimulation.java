@@ -0,0 +1,146 @@
+package gridwhack;
+
+import gridwhack.core.HeadlessRunner;
+import gridwhack.core.ISimulation;
+import gridwhack.core.VirtualClock;
+import gridwhack.gameobject.exception.InvalidGameObjectException;
+import gridwhack.gameobject.grid.GridStorage.StorageType;
+import gridwhack.gameobject.map.Map;
+import gridwhack.gameobject.map.Map.MapType;
+import gridwhack.gameobject.map.MapFactory;
+
+/**
+ * GridWhack simulation class file.
+ * Runs the game logic (map, grid and characters) without a window so that the
+ * simulation throughput can be measured on headless machines.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridWhackSimulation implements ISimulation
+{
+	private static final int DEFAULT_FPS = 80;
+	private static final int DEFAULT_UPDATES = 10000;
+	private static final int DEFAULT_MAP_WIDTH = 60;
+	private static final int DEFAULT_MAP_HEIGHT = 30;
+
+	private Map map;
+	private VirtualClock clock; // null when running in real time
+
+	/**
+	 * Creates the simulation.
+	 * @param width the map width in cells.
+	 * @param height the map height in cells.
+	 * @param clock the virtual clock to advance on every update, or null to run in real time.
+	 */
+	public GridWhackSimulation(int width, int height, VirtualClock clock)
+	{
+		this(width, height, null, clock);
+	}
+
+	/**
+	 * Creates the simulation.
+	 * @param width the map width in cells.
+	 * @param height the map height in cells.
+	 * @param storageType the type of storage for the map, or null to pick one by the size of the map.
+	 * @param clock the virtual clock to advance on every update, or null to run in real time.
+	 */
+	public GridWhackSimulation(int width, int height, StorageType storageType, VirtualClock clock)
+	{
+		this.clock = clock;
+
+		createMap(width, height, storageType);
+
+		if (clock != null)
+		{
+			map.getGrid().setClock(clock);
+		}
+	}
+
+	/**
+	 * Creates the map.
+	 * @param width the map width in cells.
+	 * @param height the map height in cells.
+	 * @param storageType the type of storage for the map, or null to pick one by the size of the map.
+	 */
+	protected void createMap(int width, int height, StorageType storageType)
+	{
+		try
+		{
+			MapFactory factory = MapFactory.getInstance();
+			map = storageType != null ? factory.create(MapType.DUNGEON, storageType, width, height)
+					: factory.create(MapType.DUNGEON, width, height);
+		}
+		catch (InvalidGameObjectException e)
+		{
+			System.out.print(e.getMessage());
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * @return the map.
+	 */
+	public Map getMap()
+	{
+		return map;
+	}
+
+	// ------------------
+	// Overridden methods
+	// ------------------
+
+	/**
+	 * Updates the game logic.
+	 */
+	@Override
+	public void updateLogic()
+	{
+		if (clock != null)
+		{
+			clock.tick();
+		}
+
+		map.update(null);
+	}
+
+	// -----------
+	// Main method
+	// -----------
+
+	/**
+	 * Main method.
+	 * Usage: GridWhackSimulation [updates] [realtime|max|virtual] [width] [height] [object|array|chunked]
+	 * In virtual mode every update advances the simulation time by one period, as fast as possible.
+	 * @param args The application arguments.
+	 */
+	public static void main(String[] args)
+	{
+		// Nothing is drawn, so make sure AWT never looks for a screen.
+		System.setProperty("java.awt.headless", "true");
+
+		long updates = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_UPDATES;
+		String mode = args.length > 1 ? args[1] : "max";
+		boolean realTime = mode.equals("realtime");
+		int width = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAP_WIDTH;
+		int height = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAP_HEIGHT;
+		StorageType storageType = args.length > 4 ? StorageType.valueOf(args[4].toUpperCase()) : null;
+		long period = realTime ? 1000000000L / DEFAULT_FPS : 0L;
+
+		VirtualClock clock = mode.equals("virtual") ? new VirtualClock(1000L / DEFAULT_FPS) : null;
+
+		System.out.println("updates: " + updates + "; mode: " + mode + "; map: " + width + "x" + height
+				+ (storageType != null ? "; storage: " + storageType.name().toLowerCase() : ""));
+
+		HeadlessRunner runner = new HeadlessRunner(new GridWhackSimulation(width, height, storageType, clock), period, updates);
+		runner.run();
+		runner.printStats();
+
+		if (clock != null)
+		{
+			System.out.println("Simulated Time: " + clock.getTime() / 1000L + " secs");
+		}
+
+		// The worker pool threads are daemons, but exit explicitly in case anything else is left running.
+		System.exit(0);
+	}
+}
@@ -1,5 +1,7 @@
 package gridwhack.base;
 
+import java.util.HashSet;
+
 import gridwhack.util.SortedArrayList;
 
 /**
@@ -97,13 +99,15 @@ public class BaseCollection extends BaseObject
 
 		final int removalsCount = removals.size();
 
-		if (removalsCount > 0)
+		if (removalsCount == 1)
 		{
-			for (int i = 0; i < removalsCount; i++)
-			{
-				objects.remove( removals.get(i) );
-			}
-
+			objects.remove( removals.get(0) );
+			removals.clear();
+		}
+		// Remove many objects in a single pass instead of searching the objects once for each.
+		else if (removalsCount > 1)
+		{
+			objects.removeAll( new HashSet<BaseObject>(removals) );
 			removals.clear();
 		}
 	}
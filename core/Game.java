@@ -5,11 +5,14 @@ import java.awt.event.*;
 
 import javax.swing.JFrame;
 
+import gridwhack.render.RenderSnapshot;
+import gridwhack.render.TripleBuffer;
+
 /**
  * Game class.
  * @author Christoffer Niska <ChristofferNiska@gmail.com>
  */
-public abstract class Game extends JFrame
+public abstract class Game extends JFrame implements ISimulation
 {
 	// ----------
 	// Properties
@@ -24,6 +27,9 @@ public abstract class Game extends JFrame
 	private GameThread gameThread;
 	private ScreenManager screen;
 	private Thread game;
+	private boolean decoupled; // whether the simulation and rendering run on threads of their own
+	private SimulationThread simulationThread;
+	private RenderThread renderThread;
 
 	// -------
 	// Methods
@@ -35,8 +41,21 @@ public abstract class Game extends JFrame
 	 * @param period The update period in nanoseconds.
 	 */
 	public Game(String title, long period)
+	{
+		this(title, period, false);
+	}
+
+	/**
+	 * Creates the game.
+	 * @param title The game title.
+	 * @param period The update period in nanoseconds.
+	 * @param decoupled Whether to update and draw on separate threads, handing frames over as render snapshots.
+	 */
+	public Game(String title, long period, boolean decoupled)
 	{
 		super(title);
+
+		this.decoupled = decoupled;
 		
 		// Create the screen manager.
 		this.screen = new ScreenManager(this);
@@ -54,7 +73,16 @@ public abstract class Game extends JFrame
 		// Allow for terminating the application.
 		readyForTermination();
 
-		gameThread = new GameThread(this, period);
+		if (decoupled)
+		{
+			TripleBuffer<RenderSnapshot> frames = new TripleBuffer<RenderSnapshot>();
+			simulationThread = new SimulationThread(this, period, frames);
+			renderThread = new RenderThread(this, frames);
+		}
+		else
+		{
+			gameThread = new GameThread(this, period);
+		}
 
 		init(); // initialize the game
 		gameStart(); // start the game thread
@@ -110,9 +138,23 @@ public abstract class Game extends JFrame
 			Runtime r = Runtime.getRuntime();
 			r.gc(); // Run garbage collection
 
-			game = new Thread(gameThread);
-			game.setName("Game");
-			game.start();
+			if (decoupled)
+			{
+				game = new Thread(simulationThread);
+				game.setName("Simulation");
+				game.start();
+
+				Thread render = new Thread(renderThread);
+				render.setName("Render");
+				render.start();
+			}
+			else
+			{
+				game = new Thread(gameThread);
+				game.setName("Game");
+				game.start();
+			}
+
 			running = true;
 		}
 	}
@@ -124,7 +166,16 @@ public abstract class Game extends JFrame
 	{
 		if (running)
 		{
-			gameThread.stopGame();
+			if (decoupled)
+			{
+				simulationThread.stopSimulation();
+				renderThread.stopRendering();
+			}
+			else
+			{
+				gameThread.stopGame();
+			}
+
 			game = null;
 			running = false;
 			screen.restoreScreen();
@@ -140,6 +191,37 @@ public abstract class Game extends JFrame
 		return screen.getFullScreenWindow();
 	}
 
+	/**
+	 * Creates an immutable copy of what to draw after an update, used when the game is decoupled.
+	 * @param tick The number of the update.
+	 * @return The snapshot.
+	 */
+	public RenderSnapshot createRenderSnapshot(long tick)
+	{
+		return null;
+	}
+
+	/**
+	 * Draws a render snapshot, used when the game is decoupled.
+	 * @param g The graphics context.
+	 * @param snapshot The snapshot.
+	 */
+	public void drawSnapshot(Graphics2D g, RenderSnapshot snapshot)
+	{
+		if (snapshot != null)
+		{
+			snapshot.draw(g);
+		}
+	}
+
+	/**
+	 * @return Whether the simulation and rendering run on threads of their own.
+	 */
+	public boolean isDecoupled()
+	{
+		return decoupled;
+	}
+
 	// ----------------
 	// Abstract methods
 	// ----------------
@@ -0,0 +1,150 @@
+package gridwhack.core;
+
+import java.text.DecimalFormat;
+
+/**
+ * Headless runner class.
+ * Updates a simulation without a window, screen or buffer strategy so that it can run
+ * on servers and in benchmarks. Runs either in real time at a fixed update period or
+ * unthrottled as fast as the simulation allows.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class HeadlessRunner implements Runnable
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private volatile boolean finished = false;
+
+	private ISimulation simulation;
+	private long period; // period in between updates in nanoseconds, 0 for unthrottled
+	private long maxUpdates; // number of updates to run, 0 for no limit
+
+	private long updateCount = 0L;
+	private long startTime;
+	private long elapsedTime = 0L;
+
+	protected DecimalFormat df = new DecimalFormat("0.##"); // 2 decimal precision
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the runner.
+	 * @param simulation The simulation to update.
+	 * @param period The update period in nanoseconds, 0 to update as fast as possible.
+	 * @param maxUpdates The number of updates to run, 0 to run until stopped.
+	 */
+	public HeadlessRunner(ISimulation simulation, long period, long maxUpdates)
+	{
+		this.simulation = simulation;
+		this.period = period;
+		this.maxUpdates = maxUpdates;
+	}
+
+	/**
+	 * Runs the simulation.
+	 */
+	public void run()
+	{
+		long beforeTime, timeDiff, sleepTime;
+		long overSleepTime = 0L;
+
+		startTime = System.nanoTime();
+		beforeTime = startTime;
+
+		while (!finished && (maxUpdates <= 0 || updateCount < maxUpdates))
+		{
+			simulation.updateLogic();
+			updateCount++;
+
+			// Keep to the period in real time, there is nothing to wait for otherwise.
+			if (period > 0)
+			{
+				timeDiff = System.nanoTime() - beforeTime;
+				sleepTime = (period - timeDiff) - overSleepTime;
+
+				if (sleepTime > 0)
+				{
+					long afterTime = System.nanoTime();
+
+					try
+					{
+						Thread.sleep(sleepTime / 1000000L, (int) (sleepTime % 1000000L)); // ns -> ms
+					}
+					catch (InterruptedException e)
+					{
+						// Doesn't matter.
+					}
+
+					overSleepTime = (System.nanoTime() - afterTime) - sleepTime;
+				}
+				else
+				{
+					overSleepTime = 0L;
+				}
+
+				beforeTime = System.nanoTime();
+			}
+		}
+
+		elapsedTime = System.nanoTime() - startTime;
+		finished = true;
+	}
+
+	/**
+	 * Stops the simulation after the current update.
+	 */
+	public void stop()
+	{
+		finished = true;
+	}
+
+	/**
+	 * Prints the runtime statistics.
+	 */
+	public void printStats()
+	{
+		System.out.println("Update Count: " + updateCount);
+		System.out.println("Average UPS: " + df.format(getUpdatesPerSecond()));
+		System.out.println("Time Spent: " + df.format(elapsedTime / 1000000000.0) + " secs"); // ns -> seconds
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The number of updates run so far.
+	 */
+	public long getUpdateCount()
+	{
+		return updateCount;
+	}
+
+	/**
+	 * @return The time the simulation ran for in nanoseconds.
+	 */
+	public long getElapsedTime()
+	{
+		return elapsedTime;
+	}
+
+	/**
+	 * @return The average number of updates per second.
+	 */
+	public double getUpdatesPerSecond()
+	{
+		return elapsedTime > 0 ? (double) updateCount / elapsedTime * 1000000000L : 0.0; // ns -> seconds
+	}
+
+	/**
+	 * @return Whether the simulation has stopped.
+	 */
+	public boolean isFinished()
+	{
+		return finished;
+	}
+}
@@ -0,0 +1,16 @@
+package gridwhack.core;
+
+/**
+ * Clock interface.
+ * Allows for reading the simulation time, so that the game logic can run
+ * in real time or in virtual time that is advanced by the game loop.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public interface IClock
+{
+	/**
+	 * Returns the current simulation time.
+	 * @return The time in milliseconds.
+	 */
+	public long getTime();
+}
@@ -0,0 +1,14 @@
+package gridwhack.core;
+
+/**
+ * Simulation interface.
+ * Allows for updating the game logic without drawing, on screen or headless.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public interface ISimulation
+{
+	/**
+	 * Updates the game logic.
+	 */
+	public void updateLogic();
+}
@@ -19,7 +19,7 @@ public class ImageLoader
 
 	private static ImageLoader instance = new ImageLoader();
 
-	private GraphicsConfiguration gc;
+	private GraphicsConfiguration gc; // null when running headless
 
 	// -------
 	// Methods
@@ -31,10 +31,12 @@ public class ImageLoader
 	 */
 	private ImageLoader()
 	{
-		// Get the graphics configuration.
-		GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-		gc = ge.getDefaultScreenDevice().getDefaultConfiguration();
-
+		// Get the graphics configuration, there is no screen to get it from when running headless.
+		if (!GraphicsEnvironment.isHeadless())
+		{
+			GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
+			gc = ge.getDefaultScreenDevice().getDefaultConfiguration();
+		}
 	}
 
 	/**
@@ -48,11 +50,17 @@ public class ImageLoader
 
 	/**
 	 * Returns a specific image from the resources.
+	 * Nothing is drawn when running headless, so no images are loaded.
 	 * @param filename The name of the image file.
-	 * @return The image.
+	 * @return The image, or null when running headless.
 	 */
 	public Image loadImage(String filename)
 	{
+		if (gc == null)
+		{
+			return null;
+		}
+
 		try
 		{
 			// Create a managed image for hardware acceleration.
@@ -0,0 +1,45 @@
+package gridwhack.core;
+
+/**
+ * Real time clock class.
+ * Reads the simulation time from the system clock.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class RealTimeClock implements IClock
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private static final RealTimeClock instance = new RealTimeClock();
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the clock.
+	 * Private to enforce the singleton pattern.
+	 */
+	private RealTimeClock()
+	{
+	}
+
+	/**
+	 * Returns the single instance of this object.
+	 * @return The instance.
+	 */
+	public static RealTimeClock getInstance()
+	{
+		return instance;
+	}
+
+	/**
+	 * Returns the current simulation time.
+	 * @return The system time in milliseconds.
+	 */
+	public long getTime()
+	{
+		return System.currentTimeMillis();
+	}
+}
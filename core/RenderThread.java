@@ -0,0 +1,129 @@
+package gridwhack.core;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+import gridwhack.render.RenderSnapshot;
+import gridwhack.render.TripleBuffer;
+
+/**
+ * Render thread class.
+ * Draws the latest render snapshot published by the simulation thread, so that slow
+ * frames never hold up the simulation. Frames are only drawn when there is a new snapshot.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class RenderThread implements Runnable
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private static final long IDLE_SLEEP = 1L; // milliseconds to wait when there is no new snapshot
+
+	private volatile boolean finished = false;
+
+	private Game game;
+	private TripleBuffer<RenderSnapshot> frames;
+	private volatile long frameCount = 0L;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the object.
+	 * @param game The game.
+	 * @param frames The buffer to take the render snapshots from.
+	 */
+	public RenderThread(Game game, TripleBuffer<RenderSnapshot> frames)
+	{
+		this.game = game;
+		this.frames = frames;
+	}
+
+	/**
+	 * Runs the renderer.
+	 */
+	public void run()
+	{
+		while (!finished)
+		{
+			if (frames.hasFresh())
+			{
+				drawFrame(frames.consume());
+				frameCount++;
+			}
+			else
+			{
+				try
+				{
+					Thread.sleep(IDLE_SLEEP);
+				}
+				catch (InterruptedException e)
+				{
+					// Doesn't matter.
+				}
+			}
+		}
+	}
+
+	/**
+	 * Draws a single frame of the game.
+	 * @param snapshot The snapshot to draw.
+	 */
+	private void drawFrame(RenderSnapshot snapshot)
+	{
+		try
+		{
+			BufferStrategy bs = game.getBufferStrategy();
+
+			// Get the content from the buffer strategy, render it dispose of it after its been rendered.
+			Graphics2D g = (Graphics2D) bs.getDrawGraphics();
+
+			g.setColor(Color.BLACK);
+			g.fillRect(0, 0, game.getWidth(), game.getHeight());
+			game.drawSnapshot(g, snapshot);
+			g.dispose();
+
+			// Make sure that the content of the buffer strategy is not lost.
+			if (!bs.contentsLost())
+			{
+				bs.show();
+			}
+			else
+			{
+				// Content was lost. This might happen if the OS overwrites the content in the buffer strategy.
+				System.out.println("Buffer strategy content lost");
+				game.gameStop();
+			}
+
+			Toolkit.getDefaultToolkit().sync(); // sync the display on *nix OS
+		}
+		catch (Exception e)
+		{
+			// Could not update the screen, print the exception and terminate the game loop.
+			e.printStackTrace();
+			game.gameStop();
+		}
+	}
+
+	/**
+	 * Stops the renderer after the current frame.
+	 */
+	public void stopRendering()
+	{
+		finished = true;
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The number of frames drawn so far.
+	 */
+	public long getFrameCount()
+	{
+		return frameCount;
+	}
+}
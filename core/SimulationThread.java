@@ -0,0 +1,100 @@
+package gridwhack.core;
+
+import gridwhack.render.RenderSnapshot;
+import gridwhack.render.TripleBuffer;
+
+/**
+ * Simulation thread class.
+ * Updates the game logic at a fixed tick rate and publishes a render snapshot after
+ * every update, without ever waiting for the render thread.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class SimulationThread implements Runnable
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private static final int MAX_TICKS_BEHIND = 5; // ticks to catch up on before giving up on the lost time
+
+	private volatile boolean finished = false;
+
+	private Game game;
+	private long period; // period in between updates in nanoseconds
+	private TripleBuffer<RenderSnapshot> frames;
+	private volatile long tickCount = 0L;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the object.
+	 * @param game The game.
+	 * @param period The update period in nanoseconds.
+	 * @param frames The buffer to publish the render snapshots to.
+	 */
+	public SimulationThread(Game game, long period, TripleBuffer<RenderSnapshot> frames)
+	{
+		this.game = game;
+		this.period = period;
+		this.frames = frames;
+	}
+
+	/**
+	 * Runs the simulation.
+	 */
+	public void run()
+	{
+		long nextTime = System.nanoTime();
+
+		while (!finished)
+		{
+			game.updateLogic();
+			tickCount++;
+
+			frames.publish(game.createRenderSnapshot(tickCount));
+
+			nextTime += period;
+			long sleepTime = nextTime - System.nanoTime();
+
+			// We have time to sleep.
+			if (sleepTime > 0)
+			{
+				try
+				{
+					Thread.sleep(sleepTime / 1000000L, (int) (sleepTime % 1000000L)); // ns -> ms
+				}
+				catch (InterruptedException e)
+				{
+					// Doesn't matter.
+				}
+			}
+			// We are too far behind to catch up, continue from now instead.
+			else if (-sleepTime > period * MAX_TICKS_BEHIND)
+			{
+				nextTime = System.nanoTime();
+			}
+		}
+	}
+
+	/**
+	 * Stops the simulation after the current update.
+	 */
+	public void stopSimulation()
+	{
+		finished = true;
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The number of updates run so far.
+	 */
+	public long getTickCount()
+	{
+		return tickCount;
+	}
+}
@@ -0,0 +1,79 @@
+package gridwhack.core;
+
+/**
+ * Virtual clock class.
+ * Simulation time that only moves when the game loop advances it by a fixed tick,
+ * so that the simulation can be fast-forwarded, replayed and benchmarked independent
+ * of the wall clock.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class VirtualClock implements IClock
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private volatile long time;
+	private long tickLength; // milliseconds
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the clock at time zero.
+	 * @param tickLength The length of a tick in milliseconds.
+	 */
+	public VirtualClock(long tickLength)
+	{
+		this.tickLength = tickLength;
+
+		time = 0L;
+	}
+
+	/**
+	 * Advances the clock by a single tick.
+	 */
+	public void tick()
+	{
+		time += tickLength;
+	}
+
+	/**
+	 * Advances the clock by a specific amount of time.
+	 * @param milliseconds The time in milliseconds.
+	 */
+	public void advance(long milliseconds)
+	{
+		time += milliseconds;
+	}
+
+	/**
+	 * Returns the current simulation time.
+	 * @return The time in milliseconds.
+	 */
+	public long getTime()
+	{
+		return time;
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The length of a tick in milliseconds.
+	 */
+	public long getTickLength()
+	{
+		return tickLength;
+	}
+
+	/**
+	 * @param tickLength The length of a tick in milliseconds.
+	 */
+	public void setTickLength(long tickLength)
+	{
+		this.tickLength = tickLength;
+	}
+}
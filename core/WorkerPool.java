@@ -0,0 +1,62 @@
+package gridwhack.core;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Worker pool class.
+ * Shared fork-join pool for work that can be split across all cores.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class WorkerPool
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private static WorkerPool instance = new WorkerPool();
+
+	private ForkJoinPool pool;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Create the object.
+	 * Private to enforce the singleton pattern.
+	 */
+	private WorkerPool()
+	{
+		// Use one worker per core, the workers are daemon threads so they never keep the game alive.
+		pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Returns the single instance of this object.
+	 * @return The instance.
+	 */
+	public static WorkerPool getInstance()
+	{
+		return instance;
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The fork-join pool.
+	 */
+	public ForkJoinPool getPool()
+	{
+		return pool;
+	}
+
+	/**
+	 * @return The number of workers.
+	 */
+	public int getParallelism()
+	{
+		return pool.getParallelism();
+	}
+}
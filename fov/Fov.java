@@ -1,10 +1,13 @@
 package gridwhack.fov;
 
 import gridwhack.base.BaseObject;
+import gridwhack.util.BitMatrix;
 
 /**
  * Field of view class.
  * All field of views must be extended from this class.
+ * Only the square window of cells within the radius of the viewer is stored,
+ * so the memory used does not depend on the size of the field.
  * @author Christoffer Niska <ChristofferNiska@gmail.com>
  */
 public abstract class Fov extends BaseObject
@@ -21,8 +24,10 @@ public abstract class Fov extends BaseObject
 	private int width;
 	private int height;
 	private int radius;
-	protected boolean[][] visible;
-	protected boolean[][] complete;
+	private int windowX; // x-coordinate of the top left cell of the window
+	private int windowY; // y-coordinate of the top left cell of the window
+	private int windowSize;
+	protected BitMatrix visible;
 
 	// -------
 	// Methods
@@ -48,19 +53,86 @@ public abstract class Fov extends BaseObject
 	 */
 	public void init()
 	{
-		visible = new boolean[width][height];
-		complete = new boolean[width][height];
+		windowSize = radius * 2 + 1;
+
+		if (visible == null)
+		{
+			visible = new BitMatrix(windowSize, windowSize);
+		}
+		else
+		{
+			visible.fill(false);
+		}
+	}
+
+	/**
+	 * Empties the field of view and centers the window on a specific node.
+	 * The window is reused, so this is cheap enough to call on every refresh.
+	 * @param cx The x-coordinate of the node.
+	 * @param cy The y-coordinate of the node.
+	 */
+	public void reset(int cx, int cy)
+	{
+		windowX = cx - radius;
+		windowY = cy - radius;
+		visible.fill(false);
 	}
 
 	/**
 	 * Returns whether a specific node is visible.
 	 * @param x The x-coordinate of the node.
 	 * @param y The y-coordinate of the node.
-	 * @return Whether the node is visible.
+	 * @return Whether the node is visible, nodes outside the window are never visible.
 	 */
 	public boolean isVisible(int x, int y)
 	{
-		return visible[x][y];
+		int wx = x - windowX;
+		int wy = y - windowY;
+
+		if (wx < 0 || wy < 0 || wx >= windowSize || wy >= windowSize)
+		{
+			return false;
+		}
+
+		return visible.get(wx, wy);
+	}
+
+	/**
+	 * Marks a specific node as visible.
+	 * Nodes outside the window or outside the field are ignored.
+	 * @param x The x-coordinate of the node.
+	 * @param y The y-coordinate of the node.
+	 */
+	protected void setVisible(int x, int y)
+	{
+		int wx = x - windowX;
+		int wy = y - windowY;
+
+		if (wx >= 0 && wy >= 0 && wx < windowSize && wy < windowSize
+				&& x >= 0 && y >= 0 && x < width && y < height)
+		{
+			visible.set(wx, wy, true);
+		}
+	}
+
+	/**
+	 * Replaces the field of view with a previously computed result.
+	 * @param result The result, which must have the same radius as this field of view.
+	 */
+	public void load(FovResult result)
+	{
+		windowX = result.getWindowX();
+		windowY = result.getWindowY();
+		result.copyTo(visible.getWords());
+	}
+
+	/**
+	 * Returns an immutable copy of the field of view.
+	 * @return The result.
+	 */
+	public FovResult createResult()
+	{
+		return new FovResult(this);
 	}
 
 	// ----------------
@@ -79,24 +151,38 @@ public abstract class Fov extends BaseObject
 	// -------------------
 
 	/**
-	 * Returns a matrix representation of which nodes are visible
-	 * taking into account the view range.
+	 * Returns a bit matrix of which nodes in the window are visible
+	 * taking into account the view range, bit (0, 0) is the node at
+	 * the top left corner of the window.
 	 * @return The visible matrix.
-	 *
 	 */
-	public boolean[][] getVisible()
+	public BitMatrix getVisible()
 	{
 		return visible;
 	}
 
 	/**
-	 * Returns a matrix representation of which cells are visible
-	 * NOT taking into account the view range.
-	 * @return The complete matrix.
+	 * @return The x-coordinate of the node at the top left corner of the window.
+	 */
+	public int getWindowX()
+	{
+		return windowX;
+	}
+
+	/**
+	 * @return The y-coordinate of the node at the top left corner of the window.
+	 */
+	public int getWindowY()
+	{
+		return windowY;
+	}
+
+	/**
+	 * @return The width and height of the window in nodes.
 	 */
-	public boolean[][] getComplete()
+	public int getWindowSize()
 	{
-		return complete;
+		return windowSize;
 	}
 
 	/**
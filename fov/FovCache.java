@@ -0,0 +1,201 @@
+package gridwhack.fov;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import gridwhack.fov.Fov.FovType;
+import gridwhack.gameobject.grid.Grid;
+
+/**
+ * Field of view cache class.
+ * Remembers the most recently computed fields of view on a grid so that viewers that
+ * stand still or come back to the same cell do not have to compute them again. Fields
+ * of view are shared between viewers with the same radius and type, and the cache is
+ * emptied whenever the opacity of the grid changes.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class FovCache
+{
+	// ----------
+	// Properties
+	// ----------
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private Grid grid;
+	private int capacity;
+	private int version; // opacity version of the grid the cached fields of view were computed on
+	private LinkedHashMap<Long, FovResult> results;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the cache.
+	 * @param grid The grid the fields of view are computed on.
+	 * @param capacity The maximum number of fields of view to remember.
+	 */
+	public FovCache(Grid grid, int capacity)
+	{
+		this.grid = grid;
+		this.capacity = capacity;
+
+		// Iterate in access order so that the least recently used field of view is evicted first.
+		results = new LinkedHashMap<Long, FovResult>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, FovResult> eldest)
+			{
+				if (size() > FovCache.this.capacity)
+				{
+					evictions++;
+					return true;
+				}
+
+				return false;
+			}
+		};
+
+		version = grid.getOpacityVersion();
+	}
+
+	/**
+	 * Returns the cached field of view seen from a specific cell.
+	 * @param cx The x-coordinate of the cell.
+	 * @param cy The y-coordinate of the cell.
+	 * @param radius The radius of the field of view.
+	 * @param type The type of the field of view.
+	 * @return The field of view, or null if it is not cached.
+	 */
+	public synchronized FovResult get(int cx, int cy, int radius, FovType type)
+	{
+		// Fields of view computed before the grid changed might see through solid cells.
+		if (version != grid.getOpacityVersion())
+		{
+			results.clear();
+			version = grid.getOpacityVersion();
+		}
+
+		FovResult result = capacity > 0 ? results.get(createKey(cx, cy, radius, type)) : null;
+
+		if (result != null)
+		{
+			hits++;
+		}
+		else
+		{
+			misses++;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Remembers the field of view seen from a specific cell.
+	 * @param cx The x-coordinate of the cell.
+	 * @param cy The y-coordinate of the cell.
+	 * @param radius The radius of the field of view.
+	 * @param type The type of the field of view.
+	 * @param result The field of view.
+	 */
+	public synchronized void put(int cx, int cy, int radius, FovType type, FovResult result)
+	{
+		if (capacity > 0 && version == grid.getOpacityVersion())
+		{
+			results.put(createKey(cx, cy, radius, type), result);
+		}
+	}
+
+	/**
+	 * Forgets all cached fields of view.
+	 */
+	public synchronized void clear()
+	{
+		results.clear();
+	}
+
+	/**
+	 * Resets the hit, miss and eviction counters.
+	 */
+	public synchronized void resetCounters()
+	{
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	/**
+	 * Packs the cell, radius and type into a single key.
+	 * @param cx The x-coordinate of the cell.
+	 * @param cy The y-coordinate of the cell.
+	 * @param radius The radius of the field of view.
+	 * @param type The type of the field of view.
+	 * @return The key.
+	 */
+	private static Long createKey(int cx, int cy, int radius, FovType type)
+	{
+		return ((long) (cx & 0xFFFFFF) << 40) | ((long) (cy & 0xFFFFFF) << 16) | ((radius & 0xFFF) << 4) | type.ordinal();
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The maximum number of fields of view to remember.
+	 */
+	public synchronized int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * @param capacity The maximum number of fields of view to remember, 0 disables the cache.
+	 */
+	public synchronized void setCapacity(int capacity)
+	{
+		this.capacity = capacity;
+
+		if (capacity <= 0)
+		{
+			results.clear();
+		}
+	}
+
+	/**
+	 * @return The number of fields of view currently cached.
+	 */
+	public synchronized int getSize()
+	{
+		return results.size();
+	}
+
+	/**
+	 * @return The number of fields of view found in the cache.
+	 */
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return The number of fields of view that had to be computed.
+	 */
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * @return The number of fields of view forgotten to make room for new ones.
+	 */
+	public synchronized long getEvictions()
+	{
+		return evictions;
+	}
+}
@@ -53,7 +53,9 @@ public class FovFactory extends BaseObject
 		switch (type)
 		{
 			case RAY_TRACING:
-				object = new RayTracing(radius, grid, viewer);
+				RayTracing rayTracing = new RayTracing(radius, grid, viewer);
+				rayTracing.setBounded(true); // the view range is all that matters to units
+				object = rayTracing;
 				break;
 
 			case SHADOW_CASTING:
@@ -0,0 +1,93 @@
+package gridwhack.fov;
+
+/**
+ * Field of view result class.
+ * Immutable copy of the visible window of a field of view that can be shared
+ * between all viewers looking from the same cell.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public final class FovResult
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private final int windowX;
+	private final int windowY;
+	private final int windowSize;
+	private final int wordsPerRow;
+	private final long[] words;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the result.
+	 * @param fov The field of view to copy.
+	 */
+	public FovResult(Fov fov)
+	{
+		windowX = fov.getWindowX();
+		windowY = fov.getWindowY();
+		windowSize = fov.getWindowSize();
+		wordsPerRow = fov.getVisible().getWordsPerRow();
+		words = fov.getVisible().getWords().clone();
+	}
+
+	/**
+	 * Returns whether a specific node is visible.
+	 * @param x The x-coordinate of the node.
+	 * @param y The y-coordinate of the node.
+	 * @return Whether the node is visible.
+	 */
+	public boolean isVisible(int x, int y)
+	{
+		int wx = x - windowX;
+		int wy = y - windowY;
+
+		if (wx < 0 || wy < 0 || wx >= windowSize || wy >= windowSize)
+		{
+			return false;
+		}
+
+		return (words[wy * wordsPerRow + (wx >>> 6)] & (1L << wx)) != 0L;
+	}
+
+	/**
+	 * Copies the visible window into a field of view with the same radius.
+	 * @param target The words of the field of view's visible matrix.
+	 */
+	void copyTo(long[] target)
+	{
+		System.arraycopy(words, 0, target, 0, words.length);
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The x-coordinate of the node at the top left corner of the window.
+	 */
+	public int getWindowX()
+	{
+		return windowX;
+	}
+
+	/**
+	 * @return The y-coordinate of the node at the top left corner of the window.
+	 */
+	public int getWindowY()
+	{
+		return windowY;
+	}
+
+	/**
+	 * @return The width and height of the window in nodes.
+	 */
+	public int getWindowSize()
+	{
+		return windowSize;
+	}
+}
@@ -10,6 +10,7 @@ import gridwhack.gameobject.character.event.ICharacterSpawnListener;
 import gridwhack.fov.Fov;
 import gridwhack.fov.IViewer;
 import gridwhack.gameobject.grid.Grid;
+import gridwhack.gameobject.grid.GridSnapshot;
 import gridwhack.util.Vector2;
 
 /**
@@ -25,6 +26,10 @@ public abstract class GridFov extends Fov implements ICharacterMoveListener, ICh
 
 	private Grid grid;
 	private IViewer viewer;
+	private GridSnapshot snapshot; // opacity to read while refreshing on a worker thread
+	private boolean dirty; // whether a deferred refresh is pending
+	private int dirtyX;
+	private int dirtyY;
 
 	// -------
 	// Methods
@@ -44,6 +49,160 @@ public abstract class GridFov extends Fov implements ICharacterMoveListener, ICh
 		this.grid = grid;
 	}
 	
+	/**
+	 * Updates the field of view, reusing the field of view seen from the same cell
+	 * by any viewer with the same radius and type if the grid has not changed since.
+	 * @param cx The current x-coordinate.
+	 * @param cy The current y-coordinate.
+	 */
+	public void refreshCached(int cx, int cy)
+	{
+		if (!isCacheable())
+		{
+			refresh(cx, cy);
+			return;
+		}
+
+		FovCache cache = grid.getFovCache();
+		FovResult result = cache.get(cx, cy, getRadius(), getType());
+
+		if (result != null)
+		{
+			load(result);
+		}
+		else
+		{
+			refresh(cx, cy);
+			cache.put(cx, cy, getRadius(), getType(), createResult());
+		}
+	}
+
+	/**
+	 * Updates the field of view reading the opacity from a snapshot of the grid instead of the
+	 * grid itself, so that fields of view can be refreshed on worker threads.
+	 * @param cx The current x-coordinate.
+	 * @param cy The current y-coordinate.
+	 * @param snapshot The snapshot.
+	 */
+	public void refresh(int cx, int cy, GridSnapshot snapshot)
+	{
+		this.snapshot = snapshot;
+
+		try
+		{
+			// Fields of view cached since the snapshot was taken might see through cells that are solid in it.
+			if (snapshot.getOpacityVersion() == grid.getOpacityVersion())
+			{
+				refreshCached(cx, cy);
+			}
+			else
+			{
+				refresh(cx, cy);
+			}
+		}
+		finally
+		{
+			this.snapshot = null;
+		}
+	}
+
+	/**
+	 * Marks the field of view to be refreshed at a specific cell by the next deferred refresh.
+	 * @param cx The x-coordinate to refresh at.
+	 * @param cy The y-coordinate to refresh at.
+	 * @return Whether the field of view was not already waiting for a refresh.
+	 */
+	public boolean markDirty(int cx, int cy)
+	{
+		dirtyX = cx;
+		dirtyY = cy;
+
+		if (dirty)
+		{
+			return false;
+		}
+
+		dirty = true;
+		return true;
+	}
+
+	/**
+	 * Refreshes the field of view at the cell it was marked dirty at, reading the opacity from the grid.
+	 * Safe on a worker thread as long as the grid does not change until the refresh is done.
+	 */
+	public void refreshDirty()
+	{
+		if (dirty)
+		{
+			refreshCached(dirtyX, dirtyY);
+			dirty = false;
+		}
+	}
+
+	/**
+	 * Refreshes the field of view at the cell it was marked dirty at.
+	 * @param snapshot The snapshot of the grid to read the opacity from.
+	 */
+	public void refreshDirty(GridSnapshot snapshot)
+	{
+		if (dirty)
+		{
+			refresh(dirtyX, dirtyY, snapshot);
+			dirty = false;
+		}
+	}
+
+	/**
+	 * Refreshes the field of view now, or leaves it to the grid if it defers refreshes to the end of the update.
+	 * @param cx The current x-coordinate.
+	 * @param cy The current y-coordinate.
+	 */
+	private void scheduleRefresh(int cx, int cy)
+	{
+		if (grid.isFovRefreshDeferred(viewer))
+		{
+			if (markDirty(cx, cy))
+			{
+				grid.addDirtyFov(this);
+			}
+		}
+		else
+		{
+			refreshCached(cx, cy);
+		}
+	}
+
+	/**
+	 * Returns whether a specific cell blocks the view, reading from the snapshot during a deferred refresh.
+	 * @param x The x-coordinate of the cell.
+	 * @param y The y-coordinate of the cell.
+	 * @return Whether the cell is solid, cells outside the grid are always solid.
+	 */
+	protected boolean isSolid(int x, int y)
+	{
+		return snapshot != null ? snapshot.isSolid(x, y) : grid.isSolid(x, y);
+	}
+
+	/**
+	 * Returns whether the field of view only depends on the cell, the radius, the type and
+	 * the opacity of the grid, so that it can be shared through the field of view cache.
+	 * @return Whether the field of view can be cached.
+	 */
+	protected boolean isCacheable()
+	{
+		return true;
+	}
+
+	// ----------------
+	// Abstract methods
+	// ----------------
+
+	/**
+	 * Returns the type of this field of view.
+	 * @return The type.
+	 */
+	public abstract FovType getType();
+
 	/**
 	 * Draws this field of view (used for debug purposes).
 	 * @param g The graphics object.
@@ -51,10 +210,14 @@ public abstract class GridFov extends Fov implements ICharacterMoveListener, ICh
 	public void draw(Graphics2D g)
 	{
 		g.setColor(Color.gray);
-		
-		for (int x = 0, width = getWidth(); x < width; x++)
+
+		int windowX = getWindowX();
+		int windowY = getWindowY();
+		int windowSize = getWindowSize();
+
+		for (int x = windowX; x < windowX + windowSize; x++)
 		{
-			for (int y = 0, height = getHeight(); y < height; y++)
+			for (int y = windowY; y < windowY + windowSize; y++)
 			{
 				if (isVisible(x, y))
 				{
@@ -74,8 +237,14 @@ public abstract class GridFov extends Fov implements ICharacterMoveListener, ICh
 	 */
 	public void onCharacterSpawn(CharacterEvent e)
 	{
+		// Viewers that perceive the player through the player's field of view do not need one of their own.
+		if (grid.usesPerception(viewer))
+		{
+			return;
+		}
+
 		Character character = (Character) e.getSource();
-		refresh(character.getGridX(), character.getGridY());
+		scheduleRefresh(character.getGridX(), character.getGridY());
 	}
 
 	/**
@@ -84,10 +253,17 @@ public abstract class GridFov extends Fov implements ICharacterMoveListener, ICh
 	 */
 	public void onCharacterMove(CharacterEvent e)
 	{
+		// Viewers that perceive the player through the player's field of view do not need one of their own.
+		if (grid.usesPerception(viewer))
+		{
+			return;
+		}
+
 		Character character = (Character) e.getSource();
-		refresh(character.getGridX(), character.getGridY());
+		scheduleRefresh(character.getGridX(), character.getGridY());
 	}
 
+
 	// -------------------
 	// Getters and setters
 	// -------------------
@@ -0,0 +1,165 @@
+package gridwhack.fov;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import gridwhack.core.WorkerPool;
+import gridwhack.gameobject.grid.GridSnapshot;
+
+/**
+ * Grid field of view batch class.
+ * Refreshes many fields of view at once on the worker pool. The fields of view read the
+ * opacity from a snapshot of the grid, or from the grid itself when the batch is joined
+ * before the grid changes again. Each field of view is only ever refreshed by one worker,
+ * so they do not need to be locked.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridFovBatch
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private static final int TASKS_PER_WORKER = 4; // split finer than the worker count to even out the load
+
+	private GridSnapshot snapshot; // null to read the opacity from the grid
+	private ArrayList<GridFov> fovs;
+	private ForkJoinTask<Void> task;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the batch that reads the opacity from the grid itself.
+	 * The grid must not change until the batch has been joined.
+	 * @param fovs The fields of view to refresh, each of them marked dirty.
+	 */
+	public GridFovBatch(List<GridFov> fovs)
+	{
+		this(null, fovs);
+	}
+
+	/**
+	 * Creates the batch.
+	 * @param snapshot The snapshot of the grid to read the opacity from.
+	 * @param fovs The fields of view to refresh, each of them marked dirty.
+	 */
+	public GridFovBatch(GridSnapshot snapshot, List<GridFov> fovs)
+	{
+		this.snapshot = snapshot;
+		this.fovs = new ArrayList<GridFov>(fovs);
+	}
+
+	/**
+	 * Starts refreshing the fields of view on the worker pool.
+	 */
+	public void submit()
+	{
+		WorkerPool workers = WorkerPool.getInstance();
+		int threshold = Math.max(1, fovs.size() / (workers.getParallelism() * TASKS_PER_WORKER));
+
+		task = workers.getPool().submit(new RefreshTask(0, fovs.size(), threshold));
+	}
+
+	/**
+	 * Waits until all fields of view have been refreshed.
+	 */
+	public void join()
+	{
+		if (task != null)
+		{
+			task.join();
+		}
+	}
+
+	/**
+	 * Refreshes a range of the fields of view on the current thread.
+	 * @param from The index of the first field of view.
+	 * @param to The index past the last field of view.
+	 */
+	private void refresh(int from, int to)
+	{
+		for (int i = from; i < to; i++)
+		{
+			if (snapshot != null)
+			{
+				fovs.get(i).refreshDirty(snapshot);
+			}
+			else
+			{
+				fovs.get(i).refreshDirty();
+			}
+		}
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return Whether all fields of view have been refreshed.
+	 */
+	public boolean isDone()
+	{
+		return task != null && task.isDone();
+	}
+
+	/**
+	 * @return The fields of view in this batch.
+	 */
+	public ArrayList<GridFov> getFovs()
+	{
+		return fovs;
+	}
+
+	/**
+	 * @return The snapshot the opacity is read from, or null if it is read from the grid.
+	 */
+	public GridSnapshot getSnapshot()
+	{
+		return snapshot;
+	}
+
+	/**
+	 * Private inner class that splits a range of fields of view until it is small enough to refresh.
+	 */
+	private class RefreshTask extends RecursiveAction
+	{
+		private int from;
+		private int to;
+		private int threshold;
+
+		/**
+		 * Creates the task.
+		 * @param from The index of the first field of view.
+		 * @param to The index past the last field of view.
+		 * @param threshold The number of fields of view to refresh without splitting.
+		 */
+		public RefreshTask(int from, int to, int threshold)
+		{
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		/**
+		 * Refreshes the range or splits it in two.
+		 */
+		@Override
+		protected void compute()
+		{
+			if (to - from <= threshold)
+			{
+				refresh(from, to);
+			}
+			else
+			{
+				int middle = (from + to) >>> 1;
+				invokeAll(new RefreshTask(from, middle, threshold), new RefreshTask(middle, to, threshold));
+			}
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package gridwhack.fov;
+
+import java.util.ArrayList;
+
+/**
+ * Ray table class.
+ * Precomputed rays from a viewer to the border of the square around it for a specific
+ * radius. The rays are merged into a tree where rays that share their first cells share
+ * the nodes for those cells, and the tree is stored in depth-first order. A field of view
+ * can then be found by walking the table and skipping the rest of a branch whenever a
+ * cell is solid, instead of tracing every ray again.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class RayTable
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private int radius;
+	private int[] dx; // x-offset of each node from the viewer
+	private int[] dy; // y-offset of each node from the viewer
+	private int[] skip; // index of the first node after the branch of each node
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the table.
+	 * @param radius The radius.
+	 */
+	public RayTable(int radius)
+	{
+		this.radius = radius;
+
+		Node root = new Node(0, 0);
+
+		// Add the rays to the border of the square around the viewer.
+		for (int i = -radius; i <= radius; i++)
+		{
+			addRay(root, i, -radius);
+			addRay(root, i, radius);
+		}
+
+		for (int i = -radius + 1; i < radius; i++)
+		{
+			addRay(root, -radius, i);
+			addRay(root, radius, i);
+		}
+
+		int nodeCount = root.count();
+		dx = new int[nodeCount];
+		dy = new int[nodeCount];
+		skip = new int[nodeCount];
+
+		flatten(root, 0);
+	}
+
+	/**
+	 * Adds the cells of a ray to the tree.
+	 * Traces the ray the same way as RayTracing.castRay so that both give the same field of view.
+	 * @param root The root node.
+	 * @param tx The x-offset of the target.
+	 * @param ty The y-offset of the target.
+	 */
+	private void addRay(Node root, int tx, int ty)
+	{
+		int deltaX = Math.abs(tx);
+		int deltaY = Math.abs(ty);
+		int x = 0;
+		int y = 0;
+		int n = 1 + deltaX + deltaY;
+		int xi = (tx > 0) ? 1 : -1;
+		int yi = (ty > 0) ? 1 : -1;
+		int error = deltaX - deltaY;
+		int end = Math.max(0, n - radius - 1);
+
+		deltaX *= 2;
+		deltaY *= 2;
+
+		Node node = root;
+		boolean first = true;
+
+		while (n > end)
+		{
+			// The first cell of each ray is the viewer itself.
+			if (!first)
+			{
+				node = node.getChild(x, y);
+			}
+
+			first = false;
+
+			if (error > 0)
+			{
+				x += xi;
+				error -= deltaY;
+			}
+			else if (error < 0)
+			{
+				y += yi;
+				error += deltaX;
+			}
+			else
+			{
+				x += xi;
+				error -= deltaY;
+				y += yi;
+				error += deltaX;
+				n--;
+			}
+
+			n--;
+		}
+	}
+
+	/**
+	 * Stores a branch of the tree in the table in depth-first order.
+	 * @param node The node at the root of the branch.
+	 * @param index The index for the node.
+	 * @return The index of the first node after the branch.
+	 */
+	private int flatten(Node node, int index)
+	{
+		dx[index] = node.x;
+		dy[index] = node.y;
+
+		int next = index + 1;
+
+		for (int i = 0, size = node.children.size(); i < size; i++)
+		{
+			next = flatten(node.children.get(i), next);
+		}
+
+		skip[index] = next;
+
+		return next;
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The radius of this table.
+	 */
+	public int getRadius()
+	{
+		return radius;
+	}
+
+	/**
+	 * @return The number of nodes in this table.
+	 */
+	public int getSize()
+	{
+		return dx.length;
+	}
+
+	/**
+	 * @return The x-offset of each node from the viewer.
+	 */
+	public int[] getDx()
+	{
+		return dx;
+	}
+
+	/**
+	 * @return The y-offset of each node from the viewer.
+	 */
+	public int[] getDy()
+	{
+		return dy;
+	}
+
+	/**
+	 * @return The index of the first node after the branch of each node.
+	 */
+	public int[] getSkip()
+	{
+		return skip;
+	}
+
+	/**
+	 * Private inner class that represents a cell in the tree of rays while the table is built.
+	 */
+	private static class Node
+	{
+		private int x;
+		private int y;
+		private ArrayList<Node> children;
+
+		/**
+		 * Creates the node.
+		 * @param x The x-offset of the cell.
+		 * @param y The y-offset of the cell.
+		 */
+		public Node(int x, int y)
+		{
+			this.x = x;
+			this.y = y;
+
+			children = new ArrayList<Node>(2);
+		}
+
+		/**
+		 * Returns the child for a specific cell, creating it if necessary.
+		 * @param x The x-offset of the cell.
+		 * @param y The y-offset of the cell.
+		 * @return The child.
+		 */
+		public Node getChild(int x, int y)
+		{
+			for (int i = 0, size = children.size(); i < size; i++)
+			{
+				Node child = children.get(i);
+
+				if (child.x == x && child.y == y)
+				{
+					return child;
+				}
+			}
+
+			Node child = new Node(x, y);
+			children.add(child);
+
+			return child;
+		}
+
+		/**
+		 * @return The number of nodes in the branch of this node.
+		 */
+		public int count()
+		{
+			int count = 1;
+
+			for (int i = 0, size = children.size(); i < size; i++)
+			{
+				count += children.get(i).count();
+			}
+
+			return count;
+		}
+	}
+}
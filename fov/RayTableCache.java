@@ -0,0 +1,60 @@
+package gridwhack.fov;
+
+import java.util.HashMap;
+
+/**
+ * Ray table cache class.
+ * Keeps a single ray table for each radius so that all viewers with the same
+ * view range share it.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class RayTableCache
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private static final RayTableCache instance = new RayTableCache();
+
+	private HashMap<Integer, RayTable> tables;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the cache.
+	 * Private to enforce the singleton pattern.
+	 */
+	private RayTableCache()
+	{
+		tables = new HashMap<Integer, RayTable>();
+	}
+
+	/**
+	 * Returns the single instance of this object.
+	 * @return The instance.
+	 */
+	public static RayTableCache getInstance()
+	{
+		return instance;
+	}
+
+	/**
+	 * Returns the ray table for a specific radius, building it the first time it is asked for.
+	 * @param radius The radius.
+	 * @return The table.
+	 */
+	public synchronized RayTable getTable(int radius)
+	{
+		RayTable table = tables.get(radius);
+
+		if (table == null)
+		{
+			table = new RayTable(radius);
+			tables.put(radius, table);
+		}
+
+		return table;
+	}
+}
@@ -4,10 +4,25 @@ import gridwhack.gameobject.grid.Grid;
 
 /**
  * Ray tracing field of view class.
+ * In bounded mode rays are only cast to the border of the square around the viewer,
+ * otherwise they are cast to the border of the whole grid. Either way rays end at the
+ * radius, so the cost of a refresh in bounded mode depends on the radius only.
+ * Bounded rays are read from a precomputed ray table instead of being traced.
  * @author Christoffer Niska <ChristofferNiska@gmail.com>
  */
 public class RayTracing extends GridFov
 {
+	// ----------
+	// Properties
+	// ----------
+
+	private boolean bounded;
+	private RayTable table; // precomputed rays for bounded mode, shared with other viewers
+
+	// -------
+	// Methods
+	// -------
+
 	/**
 	 * Creates the field of view.
 	 * @param viewer The owner of this field of view.
@@ -16,6 +31,8 @@ public class RayTracing extends GridFov
 	public RayTracing(int radius, Grid grid, IViewer viewer)
 	{
 		super(radius, grid, viewer);
+
+		bounded = false;
 	}
 
 	/**
@@ -25,7 +42,15 @@ public class RayTracing extends GridFov
 	 */
 	public void refresh(int cx, int cy)
 	{
-		init();
+		reset(cx, cy);
+
+		int radius = getRadius();
+
+		if (bounded)
+		{
+			walkTable(cx, cy);
+			return;
+		}
 
 		for (int x = 0, width = getWidth(); x < width; x++)
 		{
@@ -33,12 +58,43 @@ public class RayTracing extends GridFov
 			{
 				if ((x == 0 || y == 0) || (x == width-1 || y == height-1))
 				{
-					castRay(cx, cy, x, y, getRadius());
+					castRay(cx, cy, x, y, radius);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Finds the bounded field of view by walking the precomputed rays for the radius.
+	 * Gives the same result as casting rays to the border of the square around the viewer.
+	 * @param cx The current x-coordinate.
+	 * @param cy The current y-coordinate.
+	 */
+	private void walkTable(int cx, int cy)
+	{
+		if (table == null)
+		{
+			table = RayTableCache.getInstance().getTable(getRadius());
+		}
+
+		int[] dx = table.getDx();
+		int[] dy = table.getDy();
+		int[] skip = table.getSkip();
+		int i = 0;
+		int size = dx.length;
+
+		while (i < size)
+		{
+			int x = cx + dx[i];
+			int y = cy + dy[i];
+
+			setVisible(x, y);
+
+			// Rays stop at solid cells, so skip the rest of the rays through this one.
+			i = isSolid(x, y) ? skip[i] : i + 1;
+		}
+	}
+
 	/**
 	 * Raytracing method that uses an integer only version
 	 * of "Bresenham line-drawing algorithm" to determine
@@ -71,36 +127,26 @@ public class RayTracing extends GridFov
 		dx *= 2;
 		dy *= 2;
 
-		Grid grid = getGrid();
-
-		IViewer viewer = getViewer();
-
 		// We need to remember where we started in order to check the range.
 		int start = n;
 
 		// We have not hit anything solid yet.
 		boolean solid = false;
 
+		// We can stop once the ray leaves the range.
+		int end = Math.max(0, start - range - 1);
+
 		// Loop while we have not hit anything solid.
-		while (!solid && n > 0)
+		while (!solid && n > end)
 		{
 			// Check whether the ray hit something solid.
-			if (grid.isSolid(x, y, viewer))
+			if (isSolid(x, y))
 			{
 				solid = true;
 			}
 
 			// Mark grid cell within the range as visible.
-			if (!visible[x][y] && n >= (start - range))
-			{
-				visible[x][y] = true;
-			}
-
-			// Add visible fields to the complete field of view if necessary.
-			if (!complete[x][y])
-			{
-				complete[x][y] = true;
-			}
+			setVisible(x, y);
 
 			// Move horizontally.
 			if (error > 0)
@@ -127,4 +173,44 @@ public class RayTracing extends GridFov
 			n--;
 		}
 	}
+
+	/**
+	 * Returns whether the field of view can be cached, only bounded fields of view are
+	 * shared as unbounded ones see a little further along the diagonals.
+	 * @return Whether the field of view can be cached.
+	 */
+	@Override
+	protected boolean isCacheable()
+	{
+		return bounded;
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The type of this field of view.
+	 */
+	@Override
+	public FovType getType()
+	{
+		return FovType.RAY_TRACING;
+	}
+
+	/**
+	 * @return Whether rays are only cast to the border of the square around the viewer.
+	 */
+	public boolean isBounded()
+	{
+		return bounded;
+	}
+
+	/**
+	 * @param bounded Whether to only cast rays to the border of the square around the viewer.
+	 */
+	public void setBounded(boolean bounded)
+	{
+		this.bounded = bounded;
+	}
 }
@@ -2,111 +2,218 @@ package gridwhack.fov;
 
 import gridwhack.gameobject.grid.Grid;
 
-// TODO: Implement checking of boundaries.
+/**
+ * Shadow casting field of view class.
+ * Symmetric shadow casting that scans the four quadrants around the viewer row by row,
+ * keeping the part of each row that is not in the shadow of solid cells as a pair of
+ * slopes. Each visible cell is visited about once, so it scales well to large radii.
+ * The slopes are kept as exact fractions and the rows still to scan are kept on an
+ * explicit stack instead of recursing. A cell is visible when the center of the viewer
+ * can see its center, or when it is solid and lit from the viewer's side, which makes
+ * the field symmetric: if one cell can see another, the other can see it too.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
 public class ShadowCasting extends GridFov
 {
-    // Multipliers for transforming the coordinates into sections.
-    protected int[][] multipliers = {
-        {1, 0, 0, -1, -1, 0, 0, 1},
-        {0, 1, -1, 0, 0, -1, 1, 0},
-        {0, 1, 1, 0, 0, -1, -1, 0},
-        {1, 0, 0, 1, -1, 0, 0, -1}
-    };
-
-    public ShadowCasting(int radius, Grid grid, IViewer viewer)
-    {
-        super(radius, grid, viewer);
-    }
-
-    public void refresh(int cx, int cy)
-    {
-        int section = 0;
-
-        while( section++<8 )
-        {
-            castShadow(cx, cy, 1, 1.0, 0.0, getRadius(),
-                    multipliers[0][section], multipliers[1][section],
-                    multipliers[2][section], multipliers[3][section], 0);
-        }
-    }
-
-    private void castShadow(int cx, int cy, int row, double startSlope, double endSlope, int radius, int xx, int xy, int yx, int yy, int depth)
-    {
-        if( startSlope>=endSlope )
-        {
-	        Grid grid = getGrid();
-	        IViewer viewer = getViewer();
-            double radiusSquared = radius * radius;
-
-            for( int i=row; i<=radius; i++ )
-            {
-                int dx = -i - 1;
-                int dy = -i;
-                boolean solid = false;
-	            double newStartSlope = 0.0;
-
-                while( dx<=0 )
-                {
-	                dx++;
-
-                    // Translate the dx and dy coordinates.
-                    int x = cx + dx * xx + dy * xy;
-                    int y = cy + dx * yx + dy * yy;
-
-                    double leftSlope = (dx - 0.5) / (dy + 0.5);
-                    double rightSlope = (dx + 0.5) / (dy - 0.5);
-
-                    if( startSlope<rightSlope )
-                    {
-                        continue;
-                    }
-                    else if( endSlope>leftSlope )
-                    {
-                        break;
-                    }
-					else
-                    {
-	                    // Mark visible squares.
-	                    if( ( (dx * dx) + (dy * dy) )<radiusSquared )
-	                    {
-		                    visible[x][y] = true;
-	                    }
-	                    
-	                    // Previous spot was solid.
-	                    if( solid )
-	                    {
-		                    // We are scanning solid squares.
-		                    if( grid.isSolid(x, y, viewer) )
-		                    {
-			                    newStartSlope = rightSlope;
-			                    continue;
-		                    }
-		                    // We are scanning non-solid squares.
-		                    else
-		                    {
-			                    solid = false;
-			                    startSlope = newStartSlope;
-		                    }
-	                    }
-	                    // Previous spot was non-solid.
-	                    else
-	                    {
-		                    if( grid.isSolid(x, y, viewer) && i<radius )
-		                    {
-			                    solid = true;
-			                    castShadow(cx, cy, i + 1, startSlope, leftSlope, radius, xx, xy, yx, yy, depth + 1);
-
-			                    newStartSlope = rightSlope;
-		                    }
-	                    }
-                    }
-                }
-
-	            if( solid )
-	            {
-		            break;
-	            }
-            }
-        }
-    }
+	// ----------
+	// Properties
+	// ----------
+
+	private static final int ROW_SIZE = 5; // depth, start slope (numerator, denominator), end slope (numerator, denominator)
+
+	private int[] rows; // stack of the rows that are still to be scanned
+	private int rowCount;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the field of view.
+	 * @param radius The radius of this field of view.
+	 * @param grid The grid the viewer belongs to.
+	 * @param viewer The owner of this field of view.
+	 */
+	public ShadowCasting(int radius, Grid grid, IViewer viewer)
+	{
+		super(radius, grid, viewer);
+
+		rows = new int[ROW_SIZE * 16];
+	}
+
+	/**
+	 * Updates the field of view.
+	 * @param cx The current x-coordinate.
+	 * @param cy The current y-coordinate.
+	 */
+	public void refresh(int cx, int cy)
+	{
+		reset(cx, cy);
+
+		setVisible(cx, cy);
+
+		for (int quadrant = 0; quadrant < 4; quadrant++)
+		{
+			scanQuadrant(cx, cy, quadrant);
+		}
+	}
+
+	/**
+	 * Scans one of the quadrants around the viewer.
+	 * @param cx The x-coordinate of the viewer.
+	 * @param cy The y-coordinate of the viewer.
+	 * @param quadrant The quadrant, 0 is north, 1 east, 2 south and 3 west.
+	 */
+	private void scanQuadrant(int cx, int cy, int quadrant)
+	{
+		int radius = getRadius();
+		int radiusSquared = radius * radius;
+
+		rowCount = 0;
+		pushRow(1, -1, 1, 1, 1);
+
+		while (rowCount > 0)
+		{
+			// Pop the next row to scan.
+			rowCount--;
+			int offset = rowCount * ROW_SIZE;
+			int depth = rows[offset];
+			int startNumerator = rows[offset + 1];
+			int startDenominator = rows[offset + 2];
+			int endNumerator = rows[offset + 3];
+			int endDenominator = rows[offset + 4];
+
+			// The columns whose centers are between the slopes, rounding ties towards the middle.
+			int minColumn = floorDivide(2 * depth * startNumerator + startDenominator, 2 * startDenominator);
+			int maxColumn = -floorDivide(endDenominator - 2 * depth * endNumerator, 2 * endDenominator);
+
+			boolean hasPrevious = false;
+			boolean previousSolid = false;
+
+			for (int column = minColumn; column <= maxColumn; column++)
+			{
+				int x;
+				int y;
+
+				// Transform the row and column into grid coordinates.
+				switch (quadrant)
+				{
+					case 0:
+						x = cx + column;
+						y = cy - depth;
+						break;
+
+					case 1:
+						x = cx + depth;
+						y = cy + column;
+						break;
+
+					case 2:
+						x = cx + column;
+						y = cy + depth;
+						break;
+
+					default:
+						x = cx - depth;
+						y = cy + column;
+						break;
+				}
+
+				// Cells outside the grid are solid.
+				boolean solid = isSolid(x, y);
+
+				// Solid cells are lit from the side of the viewer, other cells need to be between the slopes.
+				if (solid || (column * startDenominator >= depth * startNumerator
+						&& column * endDenominator <= depth * endNumerator))
+				{
+					if (depth * depth + column * column <= radiusSquared)
+					{
+						setVisible(x, y);
+					}
+				}
+
+				if (hasPrevious)
+				{
+					// Leaving a solid section, the row now starts at the edge of the solid cell.
+					if (previousSolid && !solid)
+					{
+						startNumerator = 2 * column - 1;
+						startDenominator = 2 * depth;
+					}
+					// Entering a solid section, scan the part of the next row that can be seen past it.
+					else if (!previousSolid && solid && depth < radius)
+					{
+						pushRow(depth + 1, startNumerator, startDenominator, 2 * column - 1, 2 * depth);
+					}
+				}
+
+				hasPrevious = true;
+				previousSolid = solid;
+			}
+
+			// The row ended open, continue with the next row.
+			if (hasPrevious && !previousSolid && depth < radius)
+			{
+				pushRow(depth + 1, startNumerator, startDenominator, endNumerator, endDenominator);
+			}
+		}
+	}
+
+	/**
+	 * Divides two integers rounding towards negative infinity.
+	 * @param dividend The dividend.
+	 * @param divisor The divisor, must be positive.
+	 * @return The quotient.
+	 */
+	private static int floorDivide(int dividend, int divisor)
+	{
+		int quotient = dividend / divisor;
+
+		if (dividend % divisor < 0)
+		{
+			quotient--;
+		}
+
+		return quotient;
+	}
+
+	/**
+	 * Pushes a row to scan onto the stack.
+	 * @param depth The distance of the row from the viewer.
+	 * @param startNumerator The numerator of the start slope.
+	 * @param startDenominator The denominator of the start slope, always positive.
+	 * @param endNumerator The numerator of the end slope.
+	 * @param endDenominator The denominator of the end slope, always positive.
+	 */
+	private void pushRow(int depth, int startNumerator, int startDenominator, int endNumerator, int endDenominator)
+	{
+		int offset = rowCount * ROW_SIZE;
+
+		if (offset + ROW_SIZE > rows.length)
+		{
+			int[] grown = new int[rows.length * 2];
+			System.arraycopy(rows, 0, grown, 0, rows.length);
+			rows = grown;
+		}
+
+		rows[offset] = depth;
+		rows[offset + 1] = startNumerator;
+		rows[offset + 2] = startDenominator;
+		rows[offset + 3] = endNumerator;
+		rows[offset + 4] = endDenominator;
+		rowCount++;
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The type of this field of view.
+	 */
+	@Override
+	public FovType getType()
+	{
+		return FovType.SHADOW_CASTING;
+	}
 }
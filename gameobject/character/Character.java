@@ -1,6 +1,8 @@
 package gridwhack.gameobject.character;
 
 import gridwhack.base.BaseObject;
+import gridwhack.core.IClock;
+import gridwhack.core.RealTimeClock;
 import gridwhack.event.IEventListener;
 import gridwhack.gameobject.IGameObjectType;
 import gridwhack.gameobject.character.attack.BattleScenario;
@@ -14,6 +16,7 @@ import gridwhack.gameobject.character.effect.CharacterEffect;
 import gridwhack.util.Vector2;
 
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -50,6 +53,7 @@ public abstract class Character extends Unit implements ICharacterEffectApplyLis
 	protected int movementCooldown = 0; // milliseconds
 	protected long nextAttackTime;
 	protected long nextMoveTime;
+	protected IClock clock = RealTimeClock.getInstance(); // characters run in real time by default
 	protected volatile boolean dead = false; // characters are obviously not dead by default
 	protected Character killedBy;
 	protected Map<CharacterEffect.Type, CharacterEffect> effects;
@@ -66,10 +70,10 @@ public abstract class Character extends Unit implements ICharacterEffectApplyLis
 		super();
 
 		// Calculate the next time the character can attack.
-		nextAttackTime = System.currentTimeMillis() + getAttackCooldown();
+		nextAttackTime = clock.getTime() + getAttackCooldown();
 
 		// Calculate the next time the character can move.
-		nextMoveTime = System.currentTimeMillis() + getMovementCooldown();
+		nextMoveTime = clock.getTime() + getMovementCooldown();
 
 		// Initialize the map for buffs and debuffs.
 		effects = new HashMap<CharacterEffect.Type, CharacterEffect>();
@@ -127,7 +131,7 @@ public abstract class Character extends Unit implements ICharacterEffectApplyLis
 		long attackCooldown = getAttackCooldown();
 
 		// Check if the character may attack.
-		if (attackCooldown > 0 && nextAttackTime < System.currentTimeMillis())
+		if (attackCooldown > 0 && nextAttackTime < clock.getTime())
 		{
 			// calculate the next time the character can engage.
 			nextAttackTime += attackCooldown;
@@ -228,7 +232,7 @@ public abstract class Character extends Unit implements ICharacterEffectApplyLis
 		long movementCooldown = getMovementCooldown();
 
 		// Check if the character may move.
-		if (movementCooldown > 0 && nextMoveTime < System.currentTimeMillis())
+		if (movementCooldown > 0 && nextMoveTime < clock.getTime())
 		{
 			// Calculate the next time the character can move.
 			nextMoveTime += movementCooldown;
@@ -389,7 +393,8 @@ public abstract class Character extends Unit implements ICharacterEffectApplyLis
 		{
 			if (!effects.isEmpty())
 			{
-				for (CharacterEffect effect : this.effects.values())
+				// Effects remove themselves from the map when they fade, so loop through a copy.
+				for (CharacterEffect effect : new ArrayList<CharacterEffect>(effects.values()))
 				{
 					effect.update(this);
 				}
@@ -564,6 +569,44 @@ public abstract class Character extends Unit implements ICharacterEffectApplyLis
 		return movementCooldown;
 	}
 
+	/**
+	 * Returns the time at which this character next needs to be updated.
+	 * Characters under the influence of effects or that never move are updated every time.
+	 * @return the time on the clock of this character.
+	 */
+	public long getNextActionTime()
+	{
+		if (!effects.isEmpty() || getMovementCooldown() <= 0)
+		{
+			return clock.getTime();
+		}
+
+		// Moving is allowed once the clock has passed the next move time.
+		return nextMoveTime + 1;
+	}
+
+	/**
+	 * Sets the clock that the cooldowns of this character and its effects are measured with.
+	 * The cooldowns start over on the new clock.
+	 * @param clock the clock.
+	 */
+	public void setClock(IClock clock)
+	{
+		this.clock = clock;
+
+		nextAttackTime = clock.getTime() + getAttackCooldown();
+		nextMoveTime = clock.getTime() + getMovementCooldown();
+	}
+
+	/**
+	 * Returns the clock that the cooldowns of this character and its effects are measured with.
+	 * @return the clock.
+	 */
+	public IClock getClock()
+	{
+		return clock;
+	}
+
 	/**
 	 * Sets the character that killed this character.
 	 * @param killedBy the character.
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import gridwhack.RandomProvider;
 import gridwhack.base.BaseObject;
 import gridwhack.gameobject.grid.Grid;
+import gridwhack.gameobject.grid.GridFlowField;
 import gridwhack.gameobject.loot.Loot;
 import gridwhack.gameobject.unit.Unit;
 import gridwhack.gui.character.HealthBar;
@@ -21,6 +22,9 @@ public abstract class NPCCharacter extends Character
 
 	protected HealthBar healthBar;
 	protected Character target;
+	protected GridFlowField flowField;
+	protected boolean thought = false; // whether the character has already decided what to do during this update
+	protected boolean pathWanted = false; // whether the character decided to request a path to its target
 
 	// -------
 	// Methods
@@ -118,23 +122,62 @@ public abstract class NPCCharacter extends Character
 		}
 	}
 
+	/**
+	 * Moves the character one step along its flow field.
+	 */
+	public void moveAlongFlowField()
+	{
+		int next = flowField.getNextStep(getGridX(), getGridY());
+
+		// Make sure there is a next step.
+		if (next != -1)
+		{
+			int width = flowField.getWidth();
+
+			// Calculate the deltas.
+			int dgx = next % width - getGridX();
+			int dgy = next / width - getGridY();
+
+			grid.moveUnit(dgx, dgy, this);
+		}
+	}
+
+	/**
+	 * Returns the flow field that leads to a specific character if there is one within view range.
+	 * @param target the character to move towards.
+	 * @return the flow field, or null if the character has to find a path instead.
+	 */
+	public GridFlowField getFlowField(Character target)
+	{
+		// The grid only keeps a flow field towards the player.
+		if (target != grid.getPlayer())
+		{
+			return null;
+		}
+
+		GridFlowField flowField = grid.getPlayerFlowField();
+		int distance = flowField.getDistance(getGridX(), getGridY());
+
+		// Only follow the flow field as far as we would follow a path.
+		if (distance > 0 && distance <= getViewRange())
+		{
+			return flowField;
+		}
+
+		return null;
+	}
+
 	/**
 	 * Returns whether the current path is valid.
 	 * @return whether the path is valid.
 	 */
 	public boolean isPathValid()
 	{
-		int pathLength = path.getLength();
-		Step step = path.getStep(pathLength-1);
-		
 		Character target = getTarget();
-		Vector2 targetPosition = target.getGridPosition();
-		
-		// compare the coordinates of the last step in the path
+
+		// compare the coordinates of the cell the path leads to
 		// to the target coordinates.
-		// TODO: Improve GridPath to take into account cell size automatically.
-		if( (step.getX() * grid.getCellSize() == targetPosition.x)
-			&& (step.getY() * grid.getCellSize() == targetPosition.y))
+		if( path.getEndX() == target.getGridX() && path.getEndY() == target.getGridY() )
 		{
 			return true;
 		}
@@ -148,19 +191,41 @@ public abstract class NPCCharacter extends Character
 	 */
 	public void move()
 	{
+		// keep the move for when the requested path arrives rather than spending it standing still.
+		if (flowField == null && path == null && isPathRequested())
+		{
+			long time = clock.getTime();
+
+			// but only that one move, so that the character does not burst ahead once the path arrives.
+			if (nextMoveTime < time - 1)
+			{
+				nextMoveTime = time - 1;
+			}
+
+			return;
+		}
+
 		// move character if it is allowed to move.
 		if (movementAllowed())
 		{
+			// check if the character is following a flow field.
+			if (flowField != null)
+			{
+				moveAlongFlowField();
+
+				// mark the character to have moved.
+				markMoved();
+			}
 			// check if the character has a path.
-			if (path != null)
+			else if (path != null)
 			{
 				moveAlongPath();
 				
 				// mark the character to have moved.
 				markMoved();
 			}
-			// character has no path.
-			else
+			// character has no path and is not waiting for one.
+			else if (!isPathRequested())
 			{
 				// determine in which direction the character should move
 				// by simply randomizing the direction without any further logic.
@@ -173,6 +238,22 @@ public abstract class NPCCharacter extends Character
 		}
 	}
 	
+	/**
+	 * Returns the time at which this character next needs to be updated.
+	 * Characters waiting for a path are updated every time so that they move as soon as it arrives.
+	 * @return the time on the clock of this character.
+	 */
+	@Override
+	public long getNextActionTime()
+	{
+		if (isPathRequested())
+		{
+			return clock.getTime();
+		}
+
+		return super.getNextActionTime();
+	}
+
 	/**
 	 * Marks the character dead.
 	 */
@@ -203,12 +284,13 @@ public abstract class NPCCharacter extends Character
 	}
 
 	/**
-	 * Update the object.
-	 * @param parent The parent object.
+	 * Decides what the character should do during this update without changing anything
+	 * but the character itself, so that many characters can think at once on worker threads
+	 * while the grid is left untouched.
 	 */
-	public void update(BaseObject parent)
+	public void think()
 	{
-		super.update(parent);
+		pathWanted = false;
 
 		// always engage the closest visible hostile character.
 		Character target = getClosestVisibleHostileCharacter();
@@ -218,12 +300,50 @@ public abstract class NPCCharacter extends Character
 		{
 			setTarget(target);
 
-			// spawn a path to the target unless the character already has a valid path.
-			if (path == null || !isPathValid())
+			// follow the shared flow field if there is one, it is cheaper than finding a path.
+			flowField = getFlowField(target);
+
+			if (flowField != null)
+			{
+				path = null;
+			}
+			// request a path to the target unless the character already has a valid path or is waiting for one.
+			else if ((path == null || !isPathValid()) && !isPathRequested())
 			{
-				path = getPath(target.getGridX(), target.getGridY(), getViewRange());
+				pathWanted = true;
 			}
 		}
+		// there is nothing left to chase.
+		else
+		{
+			flowField = null;
+		}
+
+		thought = true;
+	}
+
+	/**
+	 * Update the object.
+	 * @param parent The parent object.
+	 */
+	public void update(BaseObject parent)
+	{
+		super.update(parent);
+
+		// think now unless the grid already let us think in parallel with the other characters.
+		if (!thought)
+		{
+			think();
+		}
+
+		thought = false;
+
+		// path requests go through the grid's scheduler, so they are made here rather than while thinking.
+		if (pathWanted)
+		{
+			pathWanted = false;
+			requestPath(target.getGridX(), target.getGridY(), getViewRange());
+		}
 
 		// move the character.
 		move();
@@ -251,6 +371,14 @@ public abstract class NPCCharacter extends Character
 		}
 	}
 
+	/**
+	 * @return the health bar drawn above the character.
+	 */
+	public HealthBar getHealthBar()
+	{
+		return healthBar;
+	}
+
 	/**
 	 * @return the character to target.
 	 */
@@ -1,5 +1,7 @@
 package gridwhack.gameobject.character.effect;
 
+import gridwhack.base.BaseObject;
+import gridwhack.core.IClock;
 import gridwhack.event.EventSource;
 import gridwhack.gameobject.character.Character;
 import gridwhack.gameobject.character.effect.event.*;
@@ -25,6 +27,7 @@ public abstract class CharacterEffect extends EventSource implements IDrawable
 	private Type type;
 	private int duration; // milliseconds
 	private Character subject;
+	private IClock clock;
 
 	private long startTime;
 	private long endTime;
@@ -35,23 +38,37 @@ public abstract class CharacterEffect extends EventSource implements IDrawable
 	private volatile boolean active = true; // effects are active by default
 
 	/**
-	 * Creates the character effect.
+	 * Creates the character effect measured with the clock of its subject.
 	 * @param name The name of the effect.
 	 * @param type The effect type.
 	 * @param duration The duration fo the effect.
 	 * @param subject The subject to apply the effect to.
 	 */
 	public CharacterEffect(String name, Type type, int duration, Character subject)
+	{
+		this(name, type, duration, subject, subject.getClock());
+	}
+
+	/**
+	 * Creates the character effect.
+	 * @param name The name of the effect.
+	 * @param type The effect type.
+	 * @param duration The duration fo the effect.
+	 * @param subject The subject to apply the effect to.
+	 * @param clock The clock to measure the duration and ticks with.
+	 */
+	public CharacterEffect(String name, Type type, int duration, Character subject, IClock clock)
 	{
 		this.name = name;
 		this.type = type;
 		this.duration = duration;
 		this.subject = subject;
+		this.clock = clock;
 
 		addListener(subject); // let the subject listen to this effect
 
 		// Calculate the start- and end type.
-		startTime = System.currentTimeMillis();
+		startTime = clock.getTime();
 		endTime = startTime + duration;
 
 		// Calculate the next time the effect should tick.
@@ -96,14 +113,15 @@ public abstract class CharacterEffect extends EventSource implements IDrawable
 
 	/**
 	 * Updates the character effect.
-	 * @param timePassed the time that has passed.
+	 * @param parent The parent object.
 	 */
-	public void update(long timePassed)
+	@Override
+	public void update(BaseObject parent)
 	{
 		// Make sure that the effect is active.
 		if( active )
 		{
-			long nowTime = System.currentTimeMillis();
+			long nowTime = clock.getTime();
 
 			// Check whether the effect should tick.
 			if( tickCooldown>0 && nextTickTime<nowTime )
@@ -203,6 +221,15 @@ public abstract class CharacterEffect extends EventSource implements IDrawable
 		return subject;
 	}
 
+	/**
+	 * Returns the clock that this character effect is measured with.
+	 * @return the clock.
+	 */
+	public IClock getClock()
+	{
+		return clock;
+	}
+
 	/**
 	 * Sets the tick cooldown for this character effect.
 	 * @param cooldown the cooldown in milliseconds.
@@ -2,6 +2,7 @@ package gridwhack.gameobject.character.player;
 
 import gridwhack.core.ImageLoader;
 import gridwhack.event.IEventListener;
+import gridwhack.fov.Fov.FovType;
 import gridwhack.gameobject.character.Character;
 import gridwhack.gameobject.character.hostile.HostileCharacter;
 import gridwhack.gameobject.character.player.event.IPlayerExperienceListener;
@@ -57,6 +58,7 @@ public class Player extends Character
 		setAttackCooldown(1000);
 		setMovementCooldown(1000);
 		setViewRange(10);
+		setFovType(FovType.SHADOW_CASTING); // the largest view range, where shadow casting pays off
 	}
 	
 	/**
@@ -258,4 +260,4 @@ public class Player extends Character
 	{
 		return target instanceof HostileCharacter;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,22 +1,40 @@
 package gridwhack.gameobject.grid;
 
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import gridwhack.base.BaseObject;
 import gridwhack.base.BaseCollection;
 import gridwhack.RandomProvider;
+import gridwhack.core.IClock;
+import gridwhack.core.RealTimeClock;
+import gridwhack.event.IEventListener;
+import gridwhack.exception.InvalidObjectException;
 import gridwhack.gameobject.DrawableGameObject;
 import gridwhack.gameobject.character.Character;
+import gridwhack.gameobject.character.NPCCharacter;
 import gridwhack.gameobject.character.event.*;
 import gridwhack.gameobject.character.player.Player;
+import gridwhack.fov.Fov.FovType;
+import gridwhack.fov.FovCache;
+import gridwhack.fov.GridFovBatch;
+import gridwhack.fov.GridFov;
 import gridwhack.fov.IViewer;
+import gridwhack.fov.ShadowCasting;
 import gridwhack.gameobject.GameObjectManager;
+import gridwhack.gameobject.grid.GridPathFinder.PathFinderType;
+import gridwhack.gameobject.grid.event.*;
 import gridwhack.gameobject.loot.Loot;
+import gridwhack.gameobject.sprite.Sprite;
 import gridwhack.gameobject.tile.Tile;
 import gridwhack.gameobject.unit.Unit;
+import gridwhack.gui.character.StatusBar;
 import gridwhack.path.*;
+import gridwhack.render.RenderSnapshot;
+import gridwhack.util.BitMatrix;
 import gridwhack.util.Vector2;
 
 /**
@@ -31,17 +49,44 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 
 	private static final int CELL_SIZE = 32;
 
+	public static final int MAX_DIRTY_REGIONS = 64;
+
 	protected int widthInCells;
 	protected int heightInCells;
-	private GridCell[][] cells;
-	private GridAStarPathFinder pf;
+	private GridStorage storage;
+	private BitMatrix blocked; // passability of each cell as seen without a mover
+	private BitMatrix playerBlocked; // passability of each cell as seen by the player
+	private BitMatrix solid; // opacity of each cell as seen without a viewer
+	private IAStarHeuristic heuristic;
+	private GridPathFinder pf;
+	private IMovementCost movementCost;
+	private GridPathCache pathCache;
+	private GridSnapshot snapshot; // the most recent snapshot, reused until the grid changes
+	private GridPathScheduler pathScheduler;
+	private ThreadLocal<GridSnapshotPathFinder> snapshotPathFinders;
+	private GridFlowField playerFlowField;
+	private GridUnitIndex unitIndex;
+	private boolean perceptionEnabled;
+	private int perceptionRange; // the longest view range of the characters on this grid
+	private GridFov perceptionFov; // what the player sees within the perception range
+	private boolean fovRefreshDeferred;
+	private boolean parallelThinking; // whether characters decide what to do on the worker pool before they act
+	private boolean actorScheduling; // whether only the characters that can act are updated
+	private GridActorScheduler actorScheduler;
+	private ArrayList<Character> dueActors; // characters woken by the scheduler during the current update
+	private ArrayList<GridFov> dirtyFovs; // fields of view to refresh at the end of the update
+	private int passabilityVersion;
+	private int opacityVersion;
+	private FovCache fovCache;
 	private GameObjectManager tiles;
 	private GameObjectManager loots;
 	private GameObjectManager characters;
 	private GameObjectManager players;
 	private Player player;
 	private Random rand;
-	private boolean[][] visible;
+	private IClock clock; // the clock the characters on this grid are measured with
+	private BitMatrix explored; // cells the player has seen at some point
+	private ArrayList<Rectangle> dirtyRegions; // bounds of the cells explored since the renderer last asked
 
 	// -------
 	// Methods
@@ -54,15 +99,75 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 	 */
 	public Grid(int widthInCells, int heightInCells)
 	{
-		this.widthInCells = widthInCells;
-		this.heightInCells = heightInCells;
+		this(new GridObjectStorage(widthInCells, heightInCells));
+	}
+
+	/**
+	 * Creates the grid on a specific storage.
+	 * @param storage The storage for the cells, its size determines the size of the grid.
+	 */
+	public Grid(GridStorage storage)
+	{
+		this.storage = storage;
+		storage.setGrid(this);
 
-		// initialize the cells as an init grid cell matrix.
-		cells = new GridCell[widthInCells][heightInCells];
+		widthInCells = storage.getWidth();
+		heightInCells = storage.getHeight();
 
 		// spawn a new path finder that uses the euclidean heuristic
 		// that can be used to calculate paths for characters on the grid.
-		pf = new GridAStarPathFinder(new EuclideanHeuristic(), this);
+		heuristic = new EuclideanHeuristic();
+		pf = new GridBinaryHeapPathFinder(heuristic, this);
+
+		// remember recently found paths as many characters ask for the same ones.
+		passabilityVersion = 0;
+		pathCache = new GridPathCache(this, GridPathCache.DEFAULT_CAPACITY);
+		pathScheduler = new GridPathScheduler(this);
+
+		// characters that stand still or return to the same cell see the same field of view.
+		opacityVersion = 0;
+		fovCache = new FovCache(this, FovCache.DEFAULT_CAPACITY);
+
+		// every worker thread searching snapshots of this grid needs a path finder of its own.
+		snapshotPathFinders = new ThreadLocal<GridSnapshotPathFinder>()
+		{
+			@Override
+			protected GridSnapshotPathFinder initialValue()
+			{
+				return new GridSnapshotPathFinder(heuristic, Grid.this);
+			}
+		};
+
+		// spawn a flow field towards the player that lets
+		// characters chase the player without searching for paths.
+		playerFlowField = new GridFlowField(this);
+		addListener(playerFlowField);
+
+		// chunked grids are too large for a flow field over every cell,
+		// characters only follow it within their view range anyway.
+		if (storage instanceof GridChunkedStorage)
+		{
+			playerFlowField.setRange(GridChunkedStorage.CHUNK_SIZE);
+		}
+
+		// sort the units into buckets so that the units near a cell can be found quickly.
+		unitIndex = new GridUnitIndex(widthInCells, heightInCells);
+
+		// characters compute a field of view of their own unless perception mode is enabled.
+		perceptionEnabled = false;
+		perceptionRange = 0;
+
+		// fields of view are refreshed as soon as their viewer moves unless refreshes are deferred.
+		fovRefreshDeferred = false;
+		dirtyFovs = new ArrayList<GridFov>();
+
+		// characters think and act one after the other unless thinking is done in parallel.
+		parallelThinking = false;
+
+		// only wake the characters whose next action is due instead of polling all of them.
+		actorScheduling = true;
+		actorScheduler = new GridActorScheduler();
+		dueActors = new ArrayList<Character>();
 
 		// spawn entity managers to handle
 		// tiles, loots, characters and players on the grid.
@@ -74,21 +179,25 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 		// get random from the random provider. 
 		rand = RandomProvider.getRand();
 
-		// initialize the visible matrix.
-		visible = new boolean[widthInCells][heightInCells];
+		// characters run in real time unless the grid is given another clock.
+		clock = RealTimeClock.getInstance();
 
-		// add cells to the grid.
-		for (int gx = 0; gx < widthInCells; gx++)
-		{
-			for (int gy = 0; gy < heightInCells; gy++)
-			{
-				cells[gx][gy] = new GridCell(gx, gy);
-			}
-		}
+		// initialize the explored matrix.
+		explored = new BitMatrix(widthInCells, heightInCells);
+		dirtyRegions = new ArrayList<Rectangle>();
+
+		// cells without a tile are blocked and solid.
+		blocked = new BitMatrix(widthInCells, heightInCells);
+		blocked.fill(true);
+		playerBlocked = new BitMatrix(widthInCells, heightInCells);
+		playerBlocked.fill(true);
+		solid = new BitMatrix(widthInCells, heightInCells);
+		solid.fill(true);
 	}
 
 	/**
 	 * Returns a specific cell in this grid.
+	 * The cell is a view of the storage that is created for each call.
 	 * @param gx The grid x-coordinates of the cell.
 	 * @param gy The grid y-coordinates of the cell.
 	 * @return The cell, or null if cell not found.
@@ -97,7 +206,7 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 	{
 		if (gx >= 0 && gy >= 0 && gx < widthInCells && gy < heightInCells)
 		{
-			return cells[gx][gy];
+			return new GridCell(storage, gx, gy);
 		}
 
 		return null;
@@ -115,7 +224,63 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 	 */
 	public GridPath getPath(int sgx, int sgy, int tgx, int tgy, int maxPathLength, IMover mover)
 	{
-		return pf.getPath(sgx, sgy, tgx, tgy, maxPathLength, mover);
+		// D* Lite repairs the search of each mover itself, a cached path would skip the repair.
+		if (pf instanceof GridDStarLitePathFinder)
+		{
+			return pf.getPath(sgx, sgy, tgx, tgy, maxPathLength, mover);
+		}
+
+		return pathCache.getPath(pf, sgx, sgy, tgx, tgy, maxPathLength, mover);
+	}
+
+	/**
+	 * Starts finding paths for many requests at once on the worker pool.
+	 * Requests are answered from the path cache when possible, the rest are searched
+	 * with binary heap A* on a snapshot of this grid, regardless of the selected path finder.
+	 * The snapshot is shared by all batches until the grid changes. Join the returned batch before reading the paths from the requests.
+	 * @param requests The requests.
+	 * @return The batch.
+	 */
+	public GridPathBatch submitPaths(List<GridPathRequest> requests)
+	{
+		GridPathBatch batch = new GridPathBatch(this, createSnapshot(), requests);
+		batch.submit();
+
+		return batch;
+	}
+
+	/**
+	 * Finds paths for many requests at once on the worker pool and waits for them.
+	 * @param requests The requests.
+	 */
+	public void solvePaths(List<GridPathRequest> requests)
+	{
+		submitPaths(requests).join();
+	}
+
+	/**
+	 * Returns an immutable copy of the passability, opacity and movement costs of this grid.
+	 * The same snapshot is returned until the passability, the opacity or the cost function changes.
+	 * @return The snapshot.
+	 */
+	public GridSnapshot createSnapshot()
+	{
+		if (snapshot == null || snapshot.getPassabilityVersion() != passabilityVersion
+				|| snapshot.getOpacityVersion() != opacityVersion)
+		{
+			snapshot = new GridSnapshot(this);
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * Returns the snapshot path finder of the current thread.
+	 * @return The path finder.
+	 */
+	GridSnapshotPathFinder getSnapshotPathFinder()
+	{
+		return snapshotPathFinders.get();
 	}
 
 	/**
@@ -145,8 +310,21 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 
 			if (cell != null)
 			{
+				int gx = (int) gp.x;
+				int gy = (int) gp.y;
+				boolean wasBlocked = blocked.get(gx, gy);
+				boolean wasPlayerBlocked = playerBlocked.get(gx, gy);
+				boolean wasSolid = solid.get(gx, gy);
+
 				cell.setTile(tile);
-				tiles.add(tile);
+
+				// Shared tiles are kept by type only, so there is no tile of this cell to manage.
+				if (!storage.sharesTiles())
+				{
+					tiles.add(tile);
+				}
+
+				markCellChanged(gx, gy, wasBlocked, wasPlayerBlocked, wasSolid);
 				return true;
 			}
 		}
@@ -154,6 +332,28 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 		return false;
 	}
 
+	/**
+	 * Replaces the tile in a cell of this grid.
+	 * @param tile The tile to place, its grid position determines the cell.
+	 * @return Whether the tile was set.
+	 */
+	public boolean setTile(Tile tile)
+	{
+		Vector2 gp = tile.getGridPosition();
+
+		if (gp != null)
+		{
+			GridCell cell = getCell((int) gp.x, (int) gp.y);
+
+			if (cell != null && cell.getTile() != null && !storage.sharesTiles())
+			{
+				tiles.remove(cell.getTile());
+			}
+		}
+
+		return addTile(tile);
+	}
+
 	/**
 	 * Adds multiple characters to this grid.
 	 * @param characters The characters to add.
@@ -182,8 +382,38 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 			if (cell != null)
 			{
 				cell.setUnit(character);
+				unitIndex.add(character, (int) gp.x, (int) gp.y);
 				character.addListener(this);
 				characters.add(character);
+
+				if (character.getClock() != clock)
+				{
+					character.setClock(clock);
+				}
+
+				// characters perceive the player through the player's shadow casting field of view.
+				if (perceptionEnabled)
+				{
+					character.setFovType(FovType.SHADOW_CASTING);
+				}
+
+				// wake the character on the next update.
+				actorScheduler.schedule(character, Long.MIN_VALUE);
+
+				// The perception field of view has to reach as far as the character that sees the furthest.
+				if (character.getViewRange() > perceptionRange)
+				{
+					perceptionRange = character.getViewRange();
+					perceptionFov = null;
+					updatePerception();
+
+					// A bounded flow field has to reach as far as well.
+					if (playerFlowField.getRange() > 0 && perceptionRange > playerFlowField.getRange())
+					{
+						playerFlowField.setRange(perceptionRange);
+					}
+				}
+
 				return true;
 			}
 		}
@@ -231,8 +461,19 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 			if (cell != null)
 			{
 				cell.setUnit(player);
+				unitIndex.add(player, (int) gp.x, (int) gp.y);
 				player.addListener(this);
 				this.player = player;
+
+				if (player.getClock() != clock)
+				{
+					player.setClock(clock);
+				}
+
+				playerFlowField.update((int) gp.x, (int) gp.y);
+				storage.setFocus((int) gp.x, (int) gp.y);
+				perceptionFov = null;
+				updatePerception();
 				return true;
 			}
 		}
@@ -242,42 +483,222 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 
 	/**
 	 * Returns all characters that a specific unit can see.
+	 * Only the units within the view radius are looked up and then checked against the field of view.
+	 * Units that use perception have no field of view of their own, so they only ever see the
+	 * player and never each other.
 	 * @param unit the unit for which to get visible characters.
 	 * @return the characters.
 	 */
 	public ArrayList<Unit> getVisibleUnits(Unit unit)
 	{
-		// Get a matrix representation for node the unit can see.
-		boolean[][] visible = unit.getFov().getVisible();
+		if (usesPerception(unit))
+		{
+			ArrayList<Unit> units = new ArrayList<Unit>(1);
+
+			if (canSeePlayer(unit))
+			{
+				units.add(player);
+			}
+
+			return units;
+		}
+
+		GridFov fov = unit.getFov();
 
 		ArrayList<Unit> units = new ArrayList<Unit>();
+		unitIndex.getUnits(unit.getGridX(), unit.getGridY(), fov.getRadius(), units);
 
-		// Loop through all the nodes in the matrix.
-		for (int gx = 0, width = visible.length; gx < width; gx++)
+		// Drop the units in cells the unit cannot see.
+		for (int i = units.size() - 1; i >= 0; i--)
 		{
-			for (int gy = 0, height = visible[gx].length; gy < height; gy++)
+			Unit other = units.get(i);
+
+			if (!fov.isVisible(other.getGridX(), other.getGridY()))
 			{
-				// Check if the node is visible.
-				if (visible[gx][gy])
-				{
-					GridCell cell = getCell(gx, gy);
+				units.remove(i);
+			}
+		}
 
-					if (cell != null)
-					{
-						Unit other = cell.getUnit();
+		return units;
+	}
 
-						// Make sure that there is a unit in the cell
-						// and that it is not already added to the characters.
-						if (other != null && !units.contains(other))
-						{
-							units.add(other);
-						}
-					}
-				}
+	/**
+	 * Returns whether a specific unit can see the player.
+	 * For units that use perception this is answered from the player's shadow casting field
+	 * of view plus a range check, which is the same as the unit's own because shadow casting
+	 * is symmetric. Other units look the player up in their own field of view.
+	 * @param unit the unit.
+	 * @return whether the player is visible to the unit.
+	 */
+	public boolean canSeePlayer(Unit unit)
+	{
+		if (player == null || unit == player)
+		{
+			return false;
+		}
+
+		int dx = unit.getGridX() - player.getGridX();
+		int dy = unit.getGridY() - player.getGridY();
+		int range = unit.getViewRange();
+
+		if (dx * dx + dy * dy > range * range)
+		{
+			return false;
+		}
+
+		if (usesPerception(unit))
+		{
+			return perceptionFov != null && perceptionFov.isVisible(unit.getGridX(), unit.getGridY());
+		}
+
+		return unit.getFov().isVisible(player.getGridX(), player.getGridY());
+	}
+
+	/**
+	 * Returns whether a specific viewer perceives the player through the player's
+	 * field of view instead of computing a field of view of its own.
+	 * Only shadow casting units do, ray tracing is not symmetric so the player's
+	 * field of view does not tell what they see.
+	 * @param viewer the viewer.
+	 * @return whether the viewer uses perception.
+	 */
+	public boolean usesPerception(IViewer viewer)
+	{
+		return perceptionEnabled && viewer != player && viewer instanceof Unit
+				&& ((Unit) viewer).getFovType() == FovType.SHADOW_CASTING;
+	}
+
+	/**
+	 * Updates the characters whose next action is due and schedules their following action.
+	 */
+	private void updateDueActors()
+	{
+		// drop the removed characters and add the new ones, as updating the manager would.
+		characters.getObjects().applyChanges();
+
+		dueActors.clear();
+		actorScheduler.pollDue(clock.getTime(), dueActors);
+
+		// let the characters think in parallel, they act one after the other in the order they were due below.
+		if (parallelThinking)
+		{
+			think(dueActors);
+		}
+
+		for (int i = 0, length = dueActors.size(); i < length; i++)
+		{
+			Character character = dueActors.get(i);
+
+			// characters can be killed by the characters that act before them.
+			if (!character.getDead())
+			{
+				character.update(characters.getObjects());
+				actorScheduler.schedule(character, character.getNextActionTime());
 			}
 		}
+	}
 
-		return units;
+	/**
+	 * Lets all living non-player characters decide what to do at once on the worker pool.
+	 * Nothing on the grid changes while they think, the decisions are carried out when
+	 * the characters are updated.
+	 */
+	public void think()
+	{
+		BaseCollection characterCollection = characters.getObjects();
+		characterCollection.applyChanges();
+
+		ArrayList<Character> actors = new ArrayList<Character>();
+
+		for (int i = 0, length = characterCollection.getSize(); i < length; i++)
+		{
+			actors.add((Character) characterCollection.get(i));
+		}
+
+		think(actors);
+	}
+
+	/**
+	 * Lets specific characters decide what to do at once on the worker pool.
+	 * @param actors the characters, the player and dead characters are skipped.
+	 */
+	private void think(List<Character> actors)
+	{
+		ArrayList<NPCCharacter> thinkers = new ArrayList<NPCCharacter>();
+
+		for (int i = 0, length = actors.size(); i < length; i++)
+		{
+			Character character = actors.get(i);
+
+			if (character instanceof NPCCharacter && !character.getDead())
+			{
+				thinkers.add((NPCCharacter) character);
+			}
+		}
+
+		if (!thinkers.isEmpty())
+		{
+			GridThinkBatch batch = new GridThinkBatch(thinkers);
+			batch.submit();
+			batch.join();
+		}
+	}
+
+	/**
+	 * Returns whether the field of view of a specific viewer is refreshed at the end of the
+	 * update instead of when the viewer moves. The player always sees right away.
+	 * @param viewer the viewer.
+	 * @return whether refreshes are deferred for the viewer.
+	 */
+	public boolean isFovRefreshDeferred(IViewer viewer)
+	{
+		return fovRefreshDeferred && viewer != player;
+	}
+
+	/**
+	 * Adds a field of view that has been marked dirty to be refreshed at the end of the update.
+	 * @param fov the field of view.
+	 */
+	public void addDirtyFov(GridFov fov)
+	{
+		dirtyFovs.add(fov);
+	}
+
+	/**
+	 * Refreshes all dirty fields of view in parallel on the worker pool.
+	 */
+	public void refreshDirtyFovs()
+	{
+		if (dirtyFovs.isEmpty())
+		{
+			return;
+		}
+
+		// The batch is joined before the grid can change, so it reads the opacity bitmap directly.
+		GridFovBatch batch = new GridFovBatch(dirtyFovs);
+		dirtyFovs.clear();
+
+		batch.submit();
+		batch.join();
+	}
+
+	/**
+	 * Updates the field of view of the player at the perception range.
+	 * Called once every time the player moves.
+	 */
+	private void updatePerception()
+	{
+		if (!perceptionEnabled || player == null || perceptionRange <= 0)
+		{
+			return;
+		}
+
+		if (perceptionFov == null)
+		{
+			perceptionFov = new ShadowCasting(perceptionRange, this, player);
+		}
+
+		perceptionFov.refreshCached(player.getGridX(), player.getGridY());
 	}
 
 	/**
@@ -292,7 +713,9 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 		Vector2 position = unit.getGridPosition();
 
 		// Get the cell this unit is moving from.
-		GridCell source = getCell((int) position.x, (int) position.y);
+		int sgx = (int) position.x;
+		int sgy = (int) position.y;
+		GridCell source = getCell(sgx, sgy);
 
 		// Make sure that the source cell exists.
 		if (source != null)
@@ -314,6 +737,7 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 					// Move the unit to the destination cell.
 					source.setUnit(null);
 					destination.setUnit(unit);
+					unitIndex.move(unit, sgx, sgy, (int) position.x, (int) position.y);
 				}
 				// Another unit is occupying the destination cell.
 				else
@@ -324,6 +748,77 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 		}
 	}
 
+	/**
+	 * Updates the passability and opacity bitmaps for a cell and lets all
+	 * listeners know if either has changed.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param wasBlocked Whether the cell was blocked before the change.
+	 * @param wasPlayerBlocked Whether the cell was blocked for the player before the change.
+	 * @param wasSolid Whether the cell was solid before the change.
+	 */
+	private void markCellChanged(int gx, int gy, boolean wasBlocked, boolean wasPlayerBlocked, boolean wasSolid)
+	{
+		Tile tile = storage.getTile(gx, gy);
+		boolean isBlocked = tile == null || tile.isBlocked(null);
+		boolean isPlayerBlocked = tile == null || tile.isBlockedForPlayer();
+		boolean isSolid = tile == null || tile.isSolid(null);
+
+		blocked.set(gx, gy, isBlocked);
+		playerBlocked.set(gx, gy, isPlayerBlocked);
+		solid.set(gx, gy, isSolid);
+
+		if (isBlocked != wasBlocked || isPlayerBlocked != wasPlayerBlocked)
+		{
+			passabilityVersion++;
+			fireGridEvent(new GridEvent(GridEvent.Type.PASSABILITY_CHANGE, this, gx, gy));
+		}
+
+		if (isSolid != wasSolid)
+		{
+			opacityVersion++;
+			fireGridEvent(new GridEvent(GridEvent.Type.OPACITY_CHANGE, this, gx, gy));
+		}
+	}
+
+	/**
+	 * Fires an event for this grid.
+	 * @param e the event.
+	 */
+	private synchronized void fireGridEvent(GridEvent e)
+	{
+		// Loop through the listeners and notify them.
+		for( IEventListener listener : getListeners() )
+		{
+			// Make sure we only notify grid listeners.
+			if( listener instanceof IGridListener )
+			{
+				switch( (GridEvent.Type) e.getType() )
+				{
+					// Cell has become blocked or unblocked.
+					case PASSABILITY_CHANGE:
+						if( listener instanceof IGridPassabilityListener )
+						{
+							( (IGridPassabilityListener) listener ).onGridPassabilityChange(e);
+						}
+						break;
+
+					// Cell has become solid or see-through.
+					case OPACITY_CHANGE:
+						if( listener instanceof IGridOpacityListener )
+						{
+							( (IGridOpacityListener) listener ).onGridOpacityChange(e);
+						}
+						break;
+
+					// Unknown event.
+					default:
+						System.out.println("Failed to fire grid event, type '" + e.getType() + "' is invalid!");
+				}
+			}
+		}
+	}
+
 	/**
 	 * Handles a collision between two characters.
 	 * @param unit the unit colliding with the other unit.
@@ -341,76 +836,166 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 	}
 
 	/**
-	 * Updates the visible matrix based on the players field of view.
+	 * Updates the explored matrix based on the players field of view.
 	 */
 	public void updateVisible()
 	{
 		if (player instanceof Player)
 		{
-			boolean[][] playerVisible = player.getFov().getVisible();
+			GridFov playerFov = player.getFov();
 
-			for (int gx = 0; gx < playerVisible.length; gx++)
+			// Only the window around the player can have become visible, merge it a word at a time.
+			Rectangle revealed = explored.or(playerFov.getVisible(), playerFov.getWindowX(), playerFov.getWindowY());
+
+			if (revealed != null)
 			{
-				for (int gy = 0; gy < playerVisible[gx].length; gy++)
-				{
-					if (!visible[gx][gy] && playerVisible[gx][gy])
-					{
-						visible[gx][gy] = true;
-					}
-				}
+				addDirtyRegion(revealed);
 			}
 		}
 	}
 
 	/**
-	 * Returns whether a specific cell is blocked.
-	 * @param gx The grid x-coordinate of the cell.
-	 * @param gy The grid y-coordinate of the cell.
-	 * @param mover The mover.
-	 * @return Whether the cell is blocked.
+	 * Remembers a region of newly explored cells for the renderer.
+	 * @param region The bounds of the region in cells.
 	 */
-	public boolean isBlocked(int gx, int gy, IMover mover)
+	private synchronized void addDirtyRegion(Rectangle region)
 	{
-		GridCell cell = getCell(gx, gy);
-
-		if (cell != null)
+		// Merge everything into a single region rather than letting the list grow when nobody reads it.
+		if (dirtyRegions.size() >= MAX_DIRTY_REGIONS)
 		{
-			return cell.isBlocked(mover);
+			Rectangle union = new Rectangle(region);
+
+			for (Rectangle other : dirtyRegions)
+			{
+				union.add(other);
+			}
+
+			dirtyRegions.clear();
+			region = union;
 		}
 
-		return true;
+		dirtyRegions.add(region);
 	}
 
 	/**
-	 * Returns whether a specific cell can be seen through.
-	 * @param gx The grid x-coordinate of the cell.
-	 * @param gy The grid y-coordinate of the cell.
-	 * @param viewer The viewer.
-	 * @return Whether the cell can be seen through.
+	 * Returns the regions of cells that have been explored since the last call and forgets them,
+	 * so that the renderer only has to redraw the newly revealed parts of the grid.
+	 * @return The bounds of the regions in cells.
 	 */
-	public boolean isSolid(int gx, int gy, IViewer viewer)
+	public synchronized List<Rectangle> takeDirtyRegions()
 	{
-		GridCell cell = getCell(gx, gy);
-
-		if (cell != null)
-		{
-			return cell.isSolid(viewer);
-		}
+		ArrayList<Rectangle> regions = dirtyRegions;
+		dirtyRegions = new ArrayList<Rectangle>();
 
-		return true;
+		return regions;
 	}
 
 	/**
-	 * Returns the movement cost to a specific cell.
-	 * @param gx The grid x-coordinate of the cell..
-	 * @param gy The grid y-coordinate of the cell..
+	 * Returns whether the player has seen a specific cell at some point.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return Whether the cell has been explored.
+	 */
+	public boolean isExplored(int gx, int gy)
+	{
+		return gx >= 0 && gy >= 0 && gx < widthInCells && gy < heightInCells && explored.get(gx, gy);
+	}
+
+	/**
+	 * Returns whether a specific cell is blocked.
+	 * Only the player can pass tiles that block other movers (stairs), so the
+	 * player is answered from a passability bitmap of its own.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param mover The mover.
+	 * @return Whether the cell is blocked.
+	 */
+	public boolean isBlocked(int gx, int gy, IMover mover)
+	{
+		if (!(mover instanceof Player))
+		{
+			return isBlocked(gx, gy);
+		}
+
+		if (gx < 0 || gy < 0 || gx >= widthInCells || gy >= heightInCells)
+		{
+			return true;
+		}
+
+		return playerBlocked.get(gx, gy);
+	}
+
+	/**
+	 * Returns whether a specific cell is blocked without asking its tile.
+	 * Reads the passability bitmap, which holds the passability as seen without a mover,
+	 * so tiles that let specific movers through (such as stairs for the player) are blocked.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return Whether the cell is blocked, cells outside the grid are always blocked.
+	 */
+	public boolean isBlocked(int gx, int gy)
+	{
+		if (gx < 0 || gy < 0 || gx >= widthInCells || gy >= heightInCells)
+		{
+			return true;
+		}
+
+		return blocked.get(gx, gy);
+	}
+
+	/**
+	 * Returns whether a specific cell is solid without asking its tile.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return Whether the cell is solid, cells outside the grid are always solid.
+	 */
+	public boolean isSolid(int gx, int gy)
+	{
+		if (gx < 0 || gy < 0 || gx >= widthInCells || gy >= heightInCells)
+		{
+			return true;
+		}
+
+		return solid.get(gx, gy);
+	}
+
+	/**
+	 * Returns whether a specific cell can be seen through.
+	 * Tiles are equally solid to every viewer, so this is answered from the opacity bitmap.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param viewer The viewer.
+	 * @return Whether the cell can be seen through.
+	 */
+	public boolean isSolid(int gx, int gy, IViewer viewer)
+	{
+		return isSolid(gx, gy);
+	}
+
+	/**
+	 * Returns the movement cost to a specific cell.
+	 * @param gx The grid x-coordinate of the cell..
+	 * @param gy The grid y-coordinate of the cell..
 	 * @param mover The mover.
 	 * @return the cost.
 	 */
-	// TODO: Implement some logic for this.
-	public int getMovementCost(int gx, int gy, IMover mover)
+	public float getMovementCost(int gx, int gy, IMover mover)
+	{
+		if (movementCost != null)
+		{
+			return movementCost.getCost(gx, gy, mover);
+		}
+
+		return 1; // moving costs the same everywhere by default
+	}
+
+	/**
+	 * Returns whether moving onto any cell costs the same.
+	 * @return Whether the movement cost is uniform.
+	 */
+	public boolean hasUniformMovementCost()
 	{
-		return 1;
+		return movementCost == null;
 	}
 
 	// ------------------
@@ -424,10 +1009,34 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 	@Override
 	public void update(BaseObject parent)
 	{
+		// deliver the paths found during the previous update.
+		pathScheduler.deliver();
+
 		tiles.update(this);
 		loots.update(this);
-		characters.update(this);
+
+		if (actorScheduling)
+		{
+			updateDueActors();
+		}
+		else
+		{
+			// let the characters think in parallel, they act one after the other in a fixed order below.
+			if (parallelThinking)
+			{
+				think();
+			}
+
+			characters.update(this);
+		}
+
 		player.update(this);
+
+		// refresh the fields of view of the characters that moved during this update.
+		refreshDirtyFovs();
+
+		// find the paths requested during this update within the budget.
+		pathScheduler.process();
 	}
 
 	/**
@@ -437,19 +1046,35 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 	@Override
 	public void draw(Graphics2D g)
 	{
-		// Get a matrix representation of the player's field of view.
-		boolean[][] playerVisible = player.getFov().getVisible();
+		// Get the player's field of view.
+		GridFov playerFov = player.getFov();
 
 		BaseCollection tileCollection = tiles.getObjects();
 		int tileCount = tileCollection.getSize();
 
-		if (tileCount > 0)
+		if (storage.sharesTiles())
+		{
+			// Shared tiles have no position of their own, so they are drawn at each explored cell.
+			for (int y = 0; y < heightInCells; y++)
+			{
+				for (int x = 0; x < widthInCells; x++)
+				{
+					Tile tile = storage.getTile(x, y);
+
+					if (tile != null && explored.get(x, y))
+					{
+						g.drawImage(tile.getImage(), x * CELL_SIZE, y * CELL_SIZE, null);
+					}
+				}
+			}
+		}
+		else if (tileCount > 0)
 		{
 			for (int i = 0; i < tileCount; i++)
 			{
 				Tile tile = (Tile) tileCollection.get(i);
 
-				if (visible[tile.getGridX()][tile.getGridY()])
+				if (explored.get(tile.getGridX(), tile.getGridY()))
 				{
 					tile.draw(g);
 				}
@@ -465,7 +1090,7 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 			{
 				Loot loot = (Loot) lootCollection.get(i);
 
-				if (visible[loot.getGridX()][loot.getGridY()])
+				if (explored.get(loot.getGridX(), loot.getGridY()))
 				{
 					loot.draw(g);
 				}
@@ -481,7 +1106,7 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 			{
 				Character character = (Character) characterCollection.get(i);
 
-				if (playerVisible[character.getGridX()][character.getGridY()])
+				if (playerFov.isVisible(character.getGridX(), character.getGridY()))
 				{
 					character.draw(g);
 				}
@@ -491,6 +1116,94 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 		player.draw(g);
 	}
 
+	/**
+	 * Returns the area of this grid that shows in a viewport of a specific size.
+	 * The grid is drawn at its world coordinates without a camera, so the viewport
+	 * starts at the origin just like the area {@link #draw(Graphics2D)} shows.
+	 * @param viewportWidth The width of the viewport in cells.
+	 * @param viewportHeight The height of the viewport in cells.
+	 * @return The area in cells, clamped to the grid.
+	 */
+	public Rectangle getViewport(int viewportWidth, int viewportHeight)
+	{
+		return new Rectangle(0, 0, Math.min(viewportWidth, widthInCells), Math.min(viewportHeight, heightInCells));
+	}
+
+	/**
+	 * Creates an immutable copy of what {@link #draw(Graphics2D)} would draw within a viewport,
+	 * so that it can be drawn on another thread. Only the cells in the viewport are visited.
+	 * @param tick The number of the update the snapshot is taken after.
+	 * @param viewport The area to copy in cells.
+	 * @return The snapshot.
+	 */
+	public RenderSnapshot createRenderSnapshot(long tick, Rectangle viewport)
+	{
+		GridFov playerFov = player.getFov();
+		int cellCount = viewport.width * viewport.height;
+		ArrayList<Sprite> sprites = new ArrayList<Sprite>(cellCount);
+		ArrayList<Vector2> positions = new ArrayList<Vector2>(cellCount);
+		ArrayList<Sprite> lootSprites = new ArrayList<Sprite>();
+		ArrayList<Sprite> characterSprites = new ArrayList<Sprite>();
+		ArrayList<StatusBar> statusBars = new ArrayList<StatusBar>();
+
+		for (int y = viewport.y, maxY = viewport.y + viewport.height; y < maxY; y++)
+		{
+			for (int x = viewport.x, maxX = viewport.x + viewport.width; x < maxX; x++)
+			{
+				// The player has seen everything visible, so unexplored cells have nothing to draw.
+				if (!explored.get(x, y))
+				{
+					continue;
+				}
+
+				Tile tile = storage.getTile(x, y);
+
+				if (tile != null)
+				{
+					// Tiles may be shared between cells, so they are drawn at the position of the cell.
+					sprites.add(tile);
+					positions.add(new Vector2(x * CELL_SIZE, y * CELL_SIZE));
+				}
+
+				Loot loot = storage.getLoot(x, y);
+
+				if (loot != null)
+				{
+					lootSprites.add(loot);
+				}
+
+				Unit unit = storage.getUnit(x, y);
+
+				if (unit instanceof Character && unit != player && !((Character) unit).getDead()
+						&& playerFov.isVisible(x, y))
+				{
+					characterSprites.add(unit);
+
+					if (unit instanceof NPCCharacter)
+					{
+						statusBars.add(((NPCCharacter) unit).getHealthBar());
+					}
+				}
+			}
+		}
+
+		// Draw in the same order as the grid does.
+		sprites.addAll(lootSprites);
+		sprites.addAll(characterSprites);
+
+		if (!player.getDead())
+		{
+			sprites.add(player);
+		}
+
+		for (int i = positions.size(), count = sprites.size(); i < count; i++)
+		{
+			positions.add(sprites.get(i).getPosition());
+		}
+
+		return new RenderSnapshot(tick, sprites, positions, statusBars);
+	}
+
 	// --------------
 	// Event handlers
 	// --------------
@@ -507,6 +1220,14 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 		if (cell != null)
 		{
 			cell.setUnit(null);
+			unitIndex.remove(character, character.getGridX(), character.getGridY());
+		}
+
+		actorScheduler.remove(character);
+
+		if (pf instanceof GridDStarLitePathFinder)
+		{
+			((GridDStarLitePathFinder) pf).forget(character);
 		}
 	}
 
@@ -518,10 +1239,13 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 	{
 		Character character = (Character) e.getSource();
 
-		// We only need to update the visible matrix when the player is moving.
+		// We only need to update the explored matrix, the flow field, the perception and the storage focus when the player is moving.
 		if (character instanceof Player)
 		{
 			updateVisible();
+			playerFlowField.update(character.getGridX(), character.getGridY());
+			updatePerception();
+			storage.setFocus(character.getGridX(), character.getGridY());
 		}
 	}
 
@@ -533,13 +1257,57 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 	{
 		Character character = (Character) e.getSource();
 
-		// We only need to update the visible matrix when the player is spawned.
+		// We only need to update the explored matrix, the flow field, the perception and the storage focus when the player is spawned.
 		if (character instanceof Player)
 		{
 			updateVisible();
+			playerFlowField.update(character.getGridX(), character.getGridY());
+			updatePerception();
+			storage.setFocus(character.getGridX(), character.getGridY());
+		}
+	}
+
+	/**
+	 * Actions to be taken when the storage pages tiles back into memory.
+	 * @param loaded The tiles, cells without a tile are null.
+	 */
+	void onTilesLoad(Tile[] loaded)
+	{
+		for (int i = 0; i < loaded.length; i++)
+		{
+			if (loaded[i] != null)
+			{
+				tiles.add(loaded[i]);
+			}
+		}
+	}
+
+	/**
+	 * Actions to be taken when the storage pages tiles out of memory.
+	 * The removal is applied once the storage has finished paging out.
+	 * @param unloaded The tiles, cells without a tile are null.
+	 */
+	void onTilesUnload(Tile[] unloaded)
+	{
+		for (int i = 0; i < unloaded.length; i++)
+		{
+			if (unloaded[i] != null)
+			{
+				tiles.remove(unloaded[i]);
+			}
 		}
 	}
 
+	/**
+	 * Actions to be taken when the storage has finished paging tiles out of memory.
+	 * The removals are applied right away so that the tiles can be released, all
+	 * at once because applying them searches every managed tile.
+	 */
+	void onTilesUnloaded()
+	{
+		tiles.getObjects().applyChanges();
+	}
+
 	// -------------------
 	// Getters and setters
 	// -------------------
@@ -593,4 +1361,319 @@ public class Grid extends DrawableGameObject implements ICharacterDeathListener,
 	{
 		return player;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns the flow field leading towards the player.
+	 * @return the flow field.
+	 */
+	public GridFlowField getPlayerFlowField()
+	{
+		return playerFlowField;
+	}
+
+	/**
+	 * Sets the path finder used for creating paths on this grid.
+	 * @param type The path finder type.
+	 * @throws InvalidObjectException If the path finder could not be created.
+	 */
+	public void setPathFinder(PathFinderType type) throws InvalidObjectException
+	{
+		// Path finders that keep state about the grid need to stop listening to it when they are replaced.
+		if (pf instanceof IGridListener)
+		{
+			removeListener((IGridListener) pf);
+		}
+
+		pf = GridPathFinderFactory.getInstance().create(type, heuristic, this);
+		pathCache.clear();
+
+		if (pf instanceof IGridListener)
+		{
+			addListener((IGridListener) pf);
+		}
+	}
+
+	/**
+	 * Returns the path finder used for creating paths on this grid.
+	 * @return The path finder.
+	 */
+	public GridPathFinder getPathFinder()
+	{
+		return pf;
+	}
+
+	/**
+	 * Returns the cache of recently found paths on this grid.
+	 * @return The path cache.
+	 */
+	public GridPathCache getPathCache()
+	{
+		return pathCache;
+	}
+
+	/**
+	 * Returns the storage that holds the cells of this grid.
+	 * @return The storage.
+	 */
+	public GridStorage getStorage()
+	{
+		return storage;
+	}
+
+	/**
+	 * Returns the spatial index of the units on this grid.
+	 * @return The index.
+	 */
+	public GridUnitIndex getUnitIndex()
+	{
+		return unitIndex;
+	}
+
+	/**
+	 * Returns the passability bitmap of this grid, a set bit marks a blocked cell.
+	 * @return The bitmap, which must not be modified.
+	 */
+	public BitMatrix getBlockedMatrix()
+	{
+		return blocked;
+	}
+
+	/**
+	 * Returns the passability bitmap of this grid as seen by the player, a set bit marks a blocked cell.
+	 * @return The bitmap, which must not be modified.
+	 */
+	public BitMatrix getPlayerBlockedMatrix()
+	{
+		return playerBlocked;
+	}
+
+	/**
+	 * Returns the bitmap of the cells the player has explored.
+	 * @return The bitmap, which must not be modified.
+	 */
+	public BitMatrix getExploredMatrix()
+	{
+		return explored;
+	}
+
+	/**
+	 * Returns the opacity bitmap of this grid, a set bit marks a solid cell.
+	 * @return The bitmap, which must not be modified.
+	 */
+	public BitMatrix getSolidMatrix()
+	{
+		return solid;
+	}
+
+	/**
+	 * Returns the scheduler that finds requested paths within a budget per update.
+	 * @return The path scheduler.
+	 */
+	public GridPathScheduler getPathScheduler()
+	{
+		return pathScheduler;
+	}
+
+	/**
+	 * Returns a counter that is increased every time a cell becomes blocked or unblocked, for the player or the other movers.
+	 * @return The passability version.
+	 */
+	public int getPassabilityVersion()
+	{
+		return passabilityVersion;
+	}
+
+	/**
+	 * Returns a counter that is increased every time a cell becomes solid or transparent.
+	 * @return The opacity version.
+	 */
+	public int getOpacityVersion()
+	{
+		return opacityVersion;
+	}
+
+	/**
+	 * Returns whether characters perceive the player through the player's field of view.
+	 * @return Whether perception mode is enabled.
+	 */
+	public boolean isPerceptionEnabled()
+	{
+		return perceptionEnabled;
+	}
+
+	/**
+	 * Sets whether characters perceive the player through the player's field of view.
+	 * Enabling perception switches every character on this grid, and every character added
+	 * later, to shadow casting, because only symmetric fields of view can be answered from
+	 * the player's. When disabled every character computes its own shadow casting field of view again.
+	 * @param perceptionEnabled Whether to enable perception mode.
+	 */
+	public void setPerceptionEnabled(boolean perceptionEnabled)
+	{
+		this.perceptionEnabled = perceptionEnabled;
+
+		BaseCollection characterCollection = characters.getObjects();
+		characterCollection.applyChanges();
+
+		for (int i = 0, length = characterCollection.getSize(); i < length; i++)
+		{
+			Character character = (Character) characterCollection.get(i);
+
+			if (perceptionEnabled)
+			{
+				character.setFovType(FovType.SHADOW_CASTING);
+				continue;
+			}
+
+			// The fields of view of the characters have not been kept up to date.
+			GridFov fov = character.getFov();
+
+			if (fov != null)
+			{
+				fov.refreshCached(character.getGridX(), character.getGridY());
+			}
+		}
+
+		if (perceptionEnabled)
+		{
+			updatePerception();
+		}
+	}
+
+	/**
+	 * Returns whether the fields of view of characters other than the player are refreshed at the end of the update.
+	 * @return Whether refreshes are deferred.
+	 */
+	public boolean isFovRefreshDeferred()
+	{
+		return fovRefreshDeferred;
+	}
+
+	/**
+	 * Sets whether the fields of view of characters other than the player are refreshed
+	 * at the end of the update, all at once on the worker pool, instead of when they move.
+	 * @param fovRefreshDeferred Whether to defer refreshes.
+	 */
+	public void setFovRefreshDeferred(boolean fovRefreshDeferred)
+	{
+		this.fovRefreshDeferred = fovRefreshDeferred;
+
+		// Do not leave fields of view waiting for a refresh that is no longer coming.
+		if (!fovRefreshDeferred)
+		{
+			refreshDirtyFovs();
+		}
+	}
+
+	/**
+	 * Returns whether characters decide what to do on the worker pool before they act.
+	 * @return Whether thinking is done in parallel.
+	 */
+	public boolean isParallelThinking()
+	{
+		return parallelThinking;
+	}
+
+	/**
+	 * Sets whether characters decide what to do on the worker pool before they act.
+	 * @param parallelThinking Whether to think in parallel.
+	 */
+	public void setParallelThinking(boolean parallelThinking)
+	{
+		this.parallelThinking = parallelThinking;
+	}
+
+	/**
+	 * Returns whether only the characters whose next action is due are updated.
+	 * @return Whether actor scheduling is enabled.
+	 */
+	public boolean isActorScheduling()
+	{
+		return actorScheduling;
+	}
+
+	/**
+	 * Sets whether only the characters whose next action is due are updated, instead of all of them.
+	 * @param actorScheduling Whether to enable actor scheduling.
+	 */
+	public void setActorScheduling(boolean actorScheduling)
+	{
+		this.actorScheduling = actorScheduling;
+	}
+
+	/**
+	 * Returns the scheduler that wakes the characters whose next action is due.
+	 * @return The actor scheduler.
+	 */
+	public GridActorScheduler getActorScheduler()
+	{
+		return actorScheduler;
+	}
+
+	/**
+	 * Returns the perception range, the longest view range of the characters on this grid.
+	 * @return The range in cells.
+	 */
+	public int getPerceptionRange()
+	{
+		return perceptionRange;
+	}
+
+	/**
+	 * Returns the clock the characters on this grid are measured with.
+	 * @return The clock.
+	 */
+	public IClock getClock()
+	{
+		return clock;
+	}
+
+	/**
+	 * Sets the clock the characters on this grid are measured with and gives it to all of them.
+	 * @param clock The clock.
+	 */
+	public void setClock(IClock clock)
+	{
+		this.clock = clock;
+
+		BaseCollection characterCollection = characters.getObjects();
+		characterCollection.applyChanges();
+
+		for (int i = 0, length = characterCollection.getSize(); i < length; i++)
+		{
+			Character character = (Character) characterCollection.get(i);
+			character.setClock(clock);
+
+			// the cooldowns start over on the new clock, so the character is due at another time.
+			if (!character.getDead())
+			{
+				actorScheduler.schedule(character, character.getNextActionTime());
+			}
+		}
+
+		if (player != null)
+		{
+			player.setClock(clock);
+		}
+	}
+
+	/**
+	 * Returns the cache of recently computed fields of view on this grid.
+	 * @return The field of view cache.
+	 */
+	public FovCache getFovCache()
+	{
+		return fovCache;
+	}
+
+	/**
+	 * Sets the function used for calculating movement costs on this grid.
+	 * @param movementCost The cost function, or null for uniform movement costs.
+	 */
+	public void setMovementCost(IMovementCost movementCost)
+	{
+		this.movementCost = movementCost;
+		pathCache.clear();
+		snapshot = null;
+	}
+}
\ No newline at end of file
@@ -9,14 +9,12 @@ import gridwhack.path.*;
  * Grid A* path finder.
  * @author Christoffer Niska <ChristofferNiska@gmail.com>
  */
-public class GridAStarPathFinder implements IPathFinder
+public class GridAStarPathFinder extends GridPathFinder
 {
 	protected ArrayList<Node> include;
 	protected ArrayList<Node> exclude;
 	
 	protected Node[][] nodes;
-	protected IAStarHeuristic heuristic;
-	protected Grid grid;
 	
 	/**
 	 * Creates the path finder.
@@ -25,8 +23,7 @@ public class GridAStarPathFinder implements IPathFinder
 	 */
 	public GridAStarPathFinder(IAStarHeuristic heuristic, Grid grid)
 	{
-		this.heuristic = heuristic;
-		this.grid = grid;
+		super(heuristic, grid);
 		
 		include = new ArrayList<Node>();
 		exclude = new ArrayList<Node>();
@@ -88,6 +85,8 @@ public class GridAStarPathFinder implements IPathFinder
 	 */
 	public GridPath getPath(int sx, int sy, int tx, int ty, int maxPathLength, IMover mover)
 	{
+		expandedNodes = 0;
+
 		// make sure destination is not blocked.
 		if (!grid.isBlocked(tx, ty, mover))
 		{
@@ -121,6 +120,7 @@ public class GridAStarPathFinder implements IPathFinder
 				// add current node to the exclude list
 				// as we do not want to go backwards.
 				exclude.add(current);
+				expandedNodes++;
 				
 				// loop through the neighboring nodes.
 				for (int nx = (current.x-1); nx < (current.x+2); nx++)
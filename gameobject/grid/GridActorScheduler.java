@@ -0,0 +1,149 @@
+package gridwhack.gameobject.grid;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import gridwhack.gameobject.character.Character;
+
+/**
+ * Grid actor scheduler class file.
+ * Keeps the characters on a grid in a priority queue ordered by the time of their next
+ * action, so that each update only wakes the characters that can act instead of polling
+ * every one of them. Characters that are due at the same time wake in the order they were
+ * scheduled in, which keeps updates deterministic.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridActorScheduler
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private PriorityQueue<Entry> queue;
+	private HashMap<Character, Entry> entries; // the current entry of each scheduled character
+	private long sequence; // number of entries created so far, used to break ties
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the scheduler.
+	 */
+	public GridActorScheduler()
+	{
+		queue = new PriorityQueue<Entry>();
+		entries = new HashMap<Character, Entry>();
+		sequence = 0L;
+	}
+
+	/**
+	 * Schedules a character to wake at a specific time, replacing the time it was scheduled at before.
+	 * @param character the character.
+	 * @param time the time at which the character should wake.
+	 */
+	public void schedule(Character character, long time)
+	{
+		Entry entry = new Entry(character, time, sequence++);
+
+		// The previous entry stays in the queue until it is polled, it is skipped as it is no longer current.
+		entries.put(character, entry);
+		queue.add(entry);
+	}
+
+	/**
+	 * Stops waking a character.
+	 * @param character the character.
+	 */
+	public void remove(Character character)
+	{
+		entries.remove(character);
+	}
+
+	/**
+	 * Takes the characters that are due at a specific time off the schedule.
+	 * The characters need to be scheduled again once they have acted.
+	 * @param time the current time.
+	 * @param result the list to add the characters to, in the order they should act.
+	 */
+	public void pollDue(long time, List<Character> result)
+	{
+		while (!queue.isEmpty() && queue.peek().time <= time)
+		{
+			Entry entry = queue.poll();
+
+			if (entries.get(entry.character) == entry)
+			{
+				entries.remove(entry.character);
+				result.add(entry.character);
+			}
+		}
+
+		// Drop the entries that are no longer current once they make up most of the queue.
+		if (queue.size() > 2 * entries.size() + 16)
+		{
+			queue.clear();
+			queue.addAll(entries.values());
+		}
+	}
+
+	/**
+	 * Removes all characters from the schedule.
+	 */
+	public void clear()
+	{
+		queue.clear();
+		entries.clear();
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return the number of scheduled characters.
+	 */
+	public int getSize()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Private inner class that holds a character and the time it should wake at.
+	 */
+	private static class Entry implements Comparable<Entry>
+	{
+		private Character character;
+		private long time;
+		private long sequence;
+
+		/**
+		 * Creates the entry.
+		 * @param character the character.
+		 * @param time the time at which the character should wake.
+		 * @param sequence the number of the entry, used to break ties.
+		 */
+		public Entry(Character character, long time, long sequence)
+		{
+			this.character = character;
+			this.time = time;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Compares this entry to another, earlier times and then earlier entries come first.
+		 * @param other the other entry.
+		 * @return a negative number, zero or a positive number.
+		 */
+		public int compareTo(Entry other)
+		{
+			if (time != other.time)
+			{
+				return time < other.time ? -1 : 1;
+			}
+
+			return sequence < other.sequence ? -1 : (sequence > other.sequence ? 1 : 0);
+		}
+	}
+}
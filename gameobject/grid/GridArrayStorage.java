@@ -0,0 +1,271 @@
+package gridwhack.gameobject.grid;
+
+import java.util.ArrayList;
+
+import gridwhack.gameobject.exception.InvalidGameObjectException;
+import gridwhack.gameobject.loot.Loot;
+import gridwhack.gameobject.tile.Tile;
+import gridwhack.gameobject.tile.Tile.TileType;
+import gridwhack.gameobject.tile.TileFactory;
+import gridwhack.gameobject.unit.Unit;
+
+/**
+ * Grid array storage class.
+ * Stores each cell in flat primitive arrays (structure of arrays): the type of its tile
+ * in a byte and its loot and unit as ids that refer to tables holding each object once.
+ * Tiles are shared, every cell of the same type returns the same tile, so a cell costs
+ * 9 bytes however many tiles the map has. Shared tiles have no cell of their own, the grid
+ * draws them at the position of each cell. Primitive arrays hold no references for the
+ * garbage collector to trace, which makes this storage suited for large maps.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridArrayStorage extends GridStorage
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private byte[] tileTypes; // the ordinal of the tile type plus one, 0 marks an empty cell
+	private int[] lootIds; // 0 marks an empty cell
+	private int[] unitIds;
+	private Tile[] sharedTiles; // one tile for each tile type, created when first placed
+	private ObjectTable loots;
+	private ObjectTable units;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the storage.
+	 * @param width The width of the grid in cells.
+	 * @param height The height of the grid in cells.
+	 */
+	public GridArrayStorage(int width, int height)
+	{
+		super(width, height);
+
+		tileTypes = new byte[width * height];
+		lootIds = new int[width * height];
+		unitIds = new int[width * height];
+		sharedTiles = new Tile[TileType.values().length];
+		loots = new ObjectTable();
+		units = new ObjectTable();
+	}
+
+	/**
+	 * Replaces the object in a specific cell of a layer.
+	 * @param ids The ids of the layer.
+	 * @param table The table of the layer.
+	 * @param index The index of the cell.
+	 * @param object The object, or null to clear the cell.
+	 */
+	private void set(int[] ids, ObjectTable table, int index, Object object)
+	{
+		if (ids[index] != 0)
+		{
+			table.remove(ids[index]);
+		}
+
+		ids[index] = object != null ? table.add(object) : 0;
+	}
+
+	/**
+	 * Returns the tile shared by all cells of a specific type.
+	 * @param type The type of the tile.
+	 * @return The tile.
+	 */
+	private Tile getSharedTile(TileType type)
+	{
+		Tile tile = sharedTiles[type.ordinal()];
+
+		if (tile == null)
+		{
+			tile = createTile(type);
+			sharedTiles[type.ordinal()] = tile;
+		}
+
+		return tile;
+	}
+
+	/**
+	 * Spawns the tile shared by all cells of a specific type.
+	 * @param type The type of the tile.
+	 * @return The tile.
+	 */
+	protected Tile createTile(TileType type)
+	{
+		try
+		{
+			return (Tile) TileFactory.getInstance().spawn(type, 0, 0);
+		}
+		catch (InvalidGameObjectException e)
+		{
+			throw new IllegalStateException("Failed to spawn shared tile " + type + ".", e);
+		}
+	}
+
+	// ------------------
+	// Overridden methods
+	// ------------------
+
+	/**
+	 * Returns the tile in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The tile, or null if the cell has no tile.
+	 */
+	@Override
+	public Tile getTile(int gx, int gy)
+	{
+		int type = tileTypes[gy * width + gx];
+		return type != 0 ? sharedTiles[type - 1] : null;
+	}
+
+	/**
+	 * Places a tile in a specific cell.
+	 * Only the type of the tile is kept, the cell returns the shared tile of that type.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param tile The tile, or null to clear the cell.
+	 */
+	@Override
+	public void setTile(int gx, int gy, Tile tile)
+	{
+		if (tile != null)
+		{
+			TileType type = tile.getType();
+			getSharedTile(type);
+			tileTypes[gy * width + gx] = (byte) (type.ordinal() + 1);
+		}
+		else
+		{
+			tileTypes[gy * width + gx] = 0;
+		}
+	}
+
+	/**
+	 * Returns whether this storage shares one tile between all cells of the same type.
+	 * @return Always true.
+	 */
+	@Override
+	public boolean sharesTiles()
+	{
+		return true;
+	}
+
+	/**
+	 * Returns the loot in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The loot, or null if the cell has no loot.
+	 */
+	@Override
+	public Loot getLoot(int gx, int gy)
+	{
+		return (Loot) loots.get(lootIds[gy * width + gx]);
+	}
+
+	/**
+	 * Places loot in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param loot The loot, or null to clear the cell.
+	 */
+	@Override
+	public void setLoot(int gx, int gy, Loot loot)
+	{
+		set(lootIds, loots, gy * width + gx, loot);
+	}
+
+	/**
+	 * Returns the unit in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The unit, or null if the cell has no unit.
+	 */
+	@Override
+	public Unit getUnit(int gx, int gy)
+	{
+		return (Unit) units.get(unitIds[gy * width + gx]);
+	}
+
+	/**
+	 * Places a unit in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param unit The unit, or null to clear the cell.
+	 */
+	@Override
+	public void setUnit(int gx, int gy, Unit unit)
+	{
+		set(unitIds, units, gy * width + gx, unit);
+	}
+
+	/**
+	 * Private inner class that hands out ids for objects and reuses the ids of removed objects.
+	 */
+	private static class ObjectTable
+	{
+		private ArrayList<Object> objects;
+		private int[] freeIds;
+		private int freeCount;
+
+		/**
+		 * Creates the table.
+		 */
+		public ObjectTable()
+		{
+			objects = new ArrayList<Object>();
+			objects.add(null); // id 0 means no object
+			freeIds = new int[16];
+			freeCount = 0;
+		}
+
+		/**
+		 * Adds an object to this table.
+		 * @param object The object.
+		 * @return The id of the object.
+		 */
+		public int add(Object object)
+		{
+			if (freeCount > 0)
+			{
+				int id = freeIds[--freeCount];
+				objects.set(id, object);
+				return id;
+			}
+
+			objects.add(object);
+			return objects.size() - 1;
+		}
+
+		/**
+		 * Removes an object from this table.
+		 * @param id The id of the object.
+		 */
+		public void remove(int id)
+		{
+			objects.set(id, null);
+
+			if (freeCount == freeIds.length)
+			{
+				int[] grown = new int[freeIds.length * 2];
+				System.arraycopy(freeIds, 0, grown, 0, freeCount);
+				freeIds = grown;
+			}
+
+			freeIds[freeCount++] = id;
+		}
+
+		/**
+		 * Returns the object with a specific id.
+		 * @param id The id.
+		 * @return The object, or null if the id is 0.
+		 */
+		public Object get(int id)
+		{
+			return objects.get(id);
+		}
+	}
+}
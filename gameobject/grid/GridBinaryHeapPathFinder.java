@@ -0,0 +1,353 @@
+package gridwhack.gameobject.grid;
+
+import java.util.Arrays;
+
+import gridwhack.path.*;
+import gridwhack.util.IndexedBinaryHeap;
+
+/**
+ * Grid binary heap A* path finder.
+ * Keeps the open list in an indexed binary heap and the node data in flat
+ * arrays that are reused between searches. A path is at most as long as its
+ * maximum length, so a search only covers the window around the start and the
+ * target that such a path can reach and indexes the nodes within that window.
+ * The node store takes 32 bytes for every cell in the largest window searched,
+ * including the heap. Subclasses that search the whole grid index the nodes by y*width+x.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridBinaryHeapPathFinder extends GridPathFinder
+{
+	// ----------
+	// Properties
+	// ----------
+
+	protected static final float DIAGONAL_COST = (float) Math.sqrt(2);
+
+	protected boolean allowDiagonal;
+	protected int width;
+	protected int height;
+	protected int windowX;
+	protected int windowY;
+	protected int windowWidth;
+	protected int windowHeight;
+
+	protected float[] movementCosts;
+	protected int[] parents;
+	protected int[] depths;
+	protected int[] openGenerations; // generation in which the node was last reached
+	protected int generation;
+
+	protected IndexedBinaryHeap open;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the path finder.
+	 * @param heuristic The heuristic to use.
+	 * @param grid The grid on which to find the path.
+	 */
+	public GridBinaryHeapPathFinder(IAStarHeuristic heuristic, Grid grid)
+	{
+		this(heuristic, grid, false);
+	}
+
+	/**
+	 * Creates the path finder.
+	 * @param heuristic The heuristic to use.
+	 * @param grid The grid on which to find the path.
+	 * @param allowDiagonal Whether to allow diagonal movement.
+	 */
+	public GridBinaryHeapPathFinder(IAStarHeuristic heuristic, Grid grid, boolean allowDiagonal)
+	{
+		super(heuristic, grid);
+
+		this.allowDiagonal = allowDiagonal;
+		generation = 0;
+		open = new IndexedBinaryHeap(0);
+	}
+
+	/**
+	 * Makes sure the node store covers the whole grid, so that the nodes are indexed by y*width+x.
+	 */
+	protected void ensureNodes()
+	{
+		width = grid.getWidthInCells();
+		height = grid.getHeightInCells();
+
+		setWindow(0, 0, width, height);
+	}
+
+	/**
+	 * Makes sure the node store covers a specific window of the grid.
+	 * The arrays only grow, so they are reused for every window up to the largest one.
+	 * @param x0 The left edge of the window.
+	 * @param y0 The top edge of the window.
+	 * @param x1 The right edge of the window (exclusive).
+	 * @param y1 The bottom edge of the window (exclusive).
+	 */
+	protected void setWindow(int x0, int y0, int x1, int y1)
+	{
+		windowX = x0;
+		windowY = y0;
+		windowWidth = x1 - x0;
+		windowHeight = y1 - y0;
+
+		int nodeCount = windowWidth * windowHeight;
+
+		// New arrays are stamped with generation 0, which no search uses.
+		if (movementCosts == null || movementCosts.length < nodeCount)
+		{
+			movementCosts = new float[nodeCount];
+			parents = new int[nodeCount];
+			depths = new int[nodeCount];
+			openGenerations = new int[nodeCount];
+
+			open.ensureCapacity(nodeCount);
+		}
+	}
+
+	/**
+	 * Returns the index of a node within the window.
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @return The node index.
+	 */
+	protected int getNode(int x, int y)
+	{
+		return (y - windowY) * windowWidth + x - windowX;
+	}
+
+	/**
+	 * Starts a new search.
+	 * Bumping the generation invalidates all nodes from the previous search without touching them.
+	 */
+	protected void nextGeneration()
+	{
+		open.clear();
+
+		// Wipe the generation stamps once the counter is about to overflow.
+		if (generation == Integer.MAX_VALUE)
+		{
+			Arrays.fill(openGenerations, 0);
+			generation = 0;
+		}
+
+		generation++;
+	}
+
+	/**
+	 * Returns whether a specific cell is blocked for the mover.
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @param mover The mover.
+	 * @return Whether the cell is blocked.
+	 */
+	protected boolean isBlocked(int x, int y, IMover mover)
+	{
+		return grid.isBlocked(x, y, mover);
+	}
+
+	/**
+	 * Returns the cost of moving onto a specific cell.
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @param mover The mover.
+	 * @return The movement cost.
+	 */
+	protected float getMovementCost(int x, int y, IMover mover)
+	{
+		return grid.getMovementCost(x, y, mover);
+	}
+
+	/**
+	 * Returns the path from the starting coordinates to the target coordinates.
+	 * @param sx The starting x-coordinate.
+	 * @param sy The starting y-coordinate.
+	 * @param tx The target x-coordinate.
+	 * @param ty The target y-coordinate.
+	 * @param maxPathLength The maximum length allowed for the path.
+	 * @param mover The entity for which to get the path.
+	 * @return The path, or null if no path available.
+	 */
+	public GridPath getPath(int sx, int sy, int tx, int ty, int maxPathLength, IMover mover)
+	{
+		expandedNodes = 0;
+
+		// Make sure the destination is not blocked.
+		if (isBlocked(tx, ty, mover))
+		{
+			return null;
+		}
+
+		width = grid.getWidthInCells();
+		height = grid.getHeightInCells();
+
+		// Make sure that both ends are on the grid.
+		if (sx < 0 || sy < 0 || sx >= width || sy >= height || tx < 0 || ty < 0 || tx >= width || ty >= height)
+		{
+			return null;
+		}
+
+		int distanceX = Math.abs(tx - sx);
+		int distanceY = Math.abs(ty - sy);
+
+		// A path always requires at least one step and every step moves at most one cell along each axis.
+		if ((distanceX == 0 && distanceY == 0) || Math.max(distanceX, distanceY) > maxPathLength)
+		{
+			return null;
+		}
+
+		// A cell further than this outside the box around both ends makes the path too long.
+		int marginX = Math.min((maxPathLength - distanceX) / 2, width);
+		int marginY = Math.min((maxPathLength - distanceY) / 2, height);
+
+		setWindow(Math.max(0, Math.min(sx, tx) - marginX), Math.max(0, Math.min(sy, ty) - marginY),
+				Math.min(width, Math.max(sx, tx) + marginX + 1), Math.min(height, Math.max(sy, ty) + marginY + 1));
+		nextGeneration();
+
+		int start = getNode(sx, sy);
+		int target = getNode(tx, ty);
+
+		reach(start, -1, 0f, 0);
+		open.add(start, heuristic.getCost(sx, sy, tx, ty, mover), 0f);
+
+		while (!open.isEmpty())
+		{
+			int current = open.poll();
+
+			// We have reached the target.
+			if (current == target)
+			{
+				return createPath(start, target);
+			}
+
+			expandedNodes++;
+
+			int cx = windowX + current % windowWidth;
+			int cy = windowY + current / windowWidth;
+			int depth = depths[current] + 1;
+
+			// Do not expand beyond the maximum path length.
+			if (depth > maxPathLength)
+			{
+				continue;
+			}
+
+			// Loop through the horizontal and vertical neighbors.
+			expand(cx - 1, cy, current, depth, 1f, tx, ty, mover);
+			expand(cx + 1, cy, current, depth, 1f, tx, ty, mover);
+			expand(cx, cy - 1, current, depth, 1f, tx, ty, mover);
+			expand(cx, cy + 1, current, depth, 1f, tx, ty, mover);
+
+			if (allowDiagonal)
+			{
+				// Diagonal moves may not cut corners, both adjacent cells must be open.
+				boolean left = !isBlocked(cx - 1, cy, mover);
+				boolean right = !isBlocked(cx + 1, cy, mover);
+				boolean up = !isBlocked(cx, cy - 1, mover);
+				boolean down = !isBlocked(cx, cy + 1, mover);
+
+				if (left && up)
+				{
+					expand(cx - 1, cy - 1, current, depth, DIAGONAL_COST, tx, ty, mover);
+				}
+
+				if (right && up)
+				{
+					expand(cx + 1, cy - 1, current, depth, DIAGONAL_COST, tx, ty, mover);
+				}
+
+				if (left && down)
+				{
+					expand(cx - 1, cy + 1, current, depth, DIAGONAL_COST, tx, ty, mover);
+				}
+
+				if (right && down)
+				{
+					expand(cx + 1, cy + 1, current, depth, DIAGONAL_COST, tx, ty, mover);
+				}
+			}
+		}
+
+		// No path available.
+		return null;
+	}
+
+	/**
+	 * Evaluates a neighbor of the current node.
+	 * @param nx The neighbor x-coordinate.
+	 * @param ny The neighbor y-coordinate.
+	 * @param current The index of the current node.
+	 * @param depth The depth of the neighbor if reached through the current node.
+	 * @param distance The distance to the neighbor (1 for straight moves).
+	 * @param tx The target x-coordinate.
+	 * @param ty The target y-coordinate.
+	 * @param mover The mover.
+	 */
+	protected void expand(int nx, int ny, int current, int depth, float distance, int tx, int ty, IMover mover)
+	{
+		if (nx < windowX || ny < windowY || nx >= windowX + windowWidth || ny >= windowY + windowHeight
+				|| isBlocked(nx, ny, mover))
+		{
+			return;
+		}
+
+		int neighbor = getNode(nx, ny);
+		float movementCost = movementCosts[current] + distance * getMovementCost(nx, ny, mover);
+
+		// Skip the neighbor unless this is the first time we reach it or we found a cheaper way to it.
+		if (openGenerations[neighbor] == generation && movementCost >= movementCosts[neighbor])
+		{
+			return;
+		}
+
+		reach(neighbor, current, movementCost, depth);
+
+		// Prefer the node furthest along the path when the estimates are equal.
+		open.add(neighbor, movementCost + heuristic.getCost(nx, ny, tx, ty, mover), -movementCost);
+	}
+
+	/**
+	 * Marks a node as reached in the current generation.
+	 * @param node The node index.
+	 * @param parent The parent node index.
+	 * @param movementCost The movement cost to the node.
+	 * @param depth The number of steps to the node.
+	 */
+	protected void reach(int node, int parent, float movementCost, int depth)
+	{
+		openGenerations[node] = generation;
+		parents[node] = parent;
+		movementCosts[node] = movementCost;
+		depths[node] = depth;
+	}
+
+	/**
+	 * Creates the path by walking the parents from the target back to the start.
+	 * @param start The start node index.
+	 * @param target The target node index.
+	 * @return The path.
+	 */
+	protected GridPath createPath(int start, int target)
+	{
+		int[] steps = new int[depths[target] + 1];
+		int index = steps.length;
+
+		// Collect the steps starting at the end, the start point is included.
+		for (int step = target; step != -1; step = parents[step])
+		{
+			steps[--index] = step;
+		}
+
+		GridPath path = new GridPath(grid);
+
+		for (int i = index; i < steps.length; i++)
+		{
+			path.appendStep(windowX + steps[i] % windowWidth, windowY + steps[i] / windowWidth);
+		}
+
+		return path;
+	}
+}
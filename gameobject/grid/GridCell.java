@@ -12,23 +12,27 @@ import gridwhack.util.Vector2;
 
 /**
  * Grid cell class.
+ * Lightweight view of a single cell in the storage of a grid,
+ * cells are created on demand and hold no state of their own.
  * @author Christoffer Niska <ChristofferNiska@gmail.com>
  */
 public class GridCell
 {
-	protected Vector2 position;
-	protected Tile tile;
-	protected Loot loot;
-	protected Unit unit;
+	protected GridStorage storage;
+	protected int gx;
+	protected int gy;
 
 	/**
 	 * Creates the cell.
+	 * @param storage The storage the cell belongs to.
 	 * @param gx The grid x-coordinate of the cell.
 	 * @param gy The grid y-coordinate of the cell.
 	 */
-	public GridCell(int gx, int gy)
+	public GridCell(GridStorage storage, int gx, int gy)
 	{
-		position = new Vector2(gx, gy);
+		this.storage = storage;
+		this.gx = gx;
+		this.gy = gy;
 	}
 
 	/**
@@ -37,8 +41,10 @@ public class GridCell
 	 */
 	public void addLoot(Loot loot)
 	{
+		Loot current = storage.getLoot(gx, gy);
+
 		// Check if there is already loot in the cell, if so we add the new items to the exisiting loot.
-		if (this.loot != null)
+		if (current != null)
 		{
 			SortedArrayList<BaseObject> items = loot.getItems();
 
@@ -49,16 +55,16 @@ public class GridCell
 
 				for (int i = 0; i < itemCount; i++)
 				{
-					this.loot.addItem((Item) items.get(i));
+					current.addItem((Item) items.get(i));
 				}
 			}
 		}
 		// No loot in the cell.
 		else
 		{
-			loot.setGridPosition(position);
+			loot.setGridPosition(getPosition());
 
-			this.loot = loot;
+			storage.setLoot(gx, gy, loot);
 		}
 	}
 
@@ -71,7 +77,7 @@ public class GridCell
 	 */
 	public Tile getTile()
 	{
-		return tile;
+		return storage.getTile(gx, gy);
 	}
 
 	/**
@@ -81,10 +87,10 @@ public class GridCell
 	{
 		if (tile != null)
 		{
-			tile.setGridPosition(position);
+			tile.setGridPosition(getPosition());
 		}
 
-		this.tile = tile;
+		storage.setTile(gx, gy, tile);
 	}
 
 	/**
@@ -92,7 +98,7 @@ public class GridCell
 	 */
 	public Loot getLoot()
 	{
-		return loot;
+		return storage.getLoot(gx, gy);
 	}
 
 	/**
@@ -102,10 +108,10 @@ public class GridCell
 	{
 		if (unit != null)
 		{
-			unit.setGridPosition(position);
+			unit.setGridPosition(getPosition());
 		}
 
-		this.unit = unit;
+		storage.setUnit(gx, gy, unit);
 	}
 
 	/**
@@ -114,7 +120,7 @@ public class GridCell
 	 */
 	public Unit getUnit()
 	{
-		return unit;
+		return storage.getUnit(gx, gy);
 	}
 
 	/**
@@ -124,6 +130,8 @@ public class GridCell
 	 */
 	public boolean isBlocked(IMover mover)
 	{
+		Tile tile = storage.getTile(gx, gy);
+
 		if (tile != null)
 		{
 			return tile.isBlocked(mover);
@@ -139,6 +147,8 @@ public class GridCell
 	 */
 	public boolean isSolid(IViewer viewer)
 	{
+		Tile tile = storage.getTile(gx, gy);
+
 		if (tile != null)
 		{
 			return tile.isSolid(viewer);
@@ -152,6 +162,6 @@ public class GridCell
 	 */
 	public Vector2 getPosition()
 	{
-		return position;
+		return new Vector2(gx, gy);
 	}
 }
@@ -0,0 +1,562 @@
+package gridwhack.gameobject.grid;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import gridwhack.gameobject.exception.InvalidGameObjectException;
+import gridwhack.gameobject.loot.Loot;
+import gridwhack.gameobject.tile.Tile;
+import gridwhack.gameobject.tile.Tile.TileType;
+import gridwhack.gameobject.tile.TileFactory;
+import gridwhack.gameobject.unit.Unit;
+import gridwhack.util.BitMatrix;
+
+/**
+ * Grid chunked storage class.
+ * Splits the grid into square chunks that are only created once something is placed
+ * in them. When more chunks are in memory than allowed, the least recently used chunks
+ * away from the focus are written to disk and their tiles are released, they are
+ * streamed back in the next time one of their tiles is asked for. Chunks that hold
+ * loot or units are never paged out. This storage is not thread-safe, use it from the game thread only.
+ * Only the cells are paged. The player flow field of a chunked grid is bounded to a window
+ * around the player and the binary heap path finders size their node store to the window
+ * a path of the maximum length can reach, so neither grows with the grid. Jump point and
+ * hierarchical path finders still keep a node store for the whole grid.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridChunkedStorage extends GridStorage
+{
+	// ----------
+	// Properties
+	// ----------
+
+	public static final int CHUNK_SIZE = 32;
+	public static final int DEFAULT_MAX_RESIDENT_CHUNKS = 256;
+
+	private static final int CHUNK_SHIFT = 5; // log2 of the chunk size
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int FOCUS_RADIUS = 2; // chunks this close to the focus are paged out last
+
+	private int widthInChunks;
+	private int heightInChunks;
+	private Chunk[] chunks; // null for chunks that are not in memory
+	private BitMatrix pagedOut; // chunks that have been written to disk
+	private int residentChunks;
+	private int maxResidentChunks;
+	private int focusX;
+	private int focusY;
+	private long accessCount; // used to stamp the chunks when they are accessed
+	private File pageDirectory;
+	private int pageOuts;
+	private int pageIns;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the storage.
+	 * @param width The width of the grid in cells.
+	 * @param height The height of the grid in cells.
+	 */
+	public GridChunkedStorage(int width, int height)
+	{
+		this(width, height, DEFAULT_MAX_RESIDENT_CHUNKS);
+	}
+
+	/**
+	 * Creates the storage.
+	 * @param width The width of the grid in cells.
+	 * @param height The height of the grid in cells.
+	 * @param maxResidentChunks The number of chunks to keep in memory before paging out.
+	 */
+	public GridChunkedStorage(int width, int height, int maxResidentChunks)
+	{
+		super(width, height);
+
+		this.maxResidentChunks = maxResidentChunks;
+
+		widthInChunks = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+		heightInChunks = (height + CHUNK_MASK) >> CHUNK_SHIFT;
+		chunks = new Chunk[widthInChunks * heightInChunks];
+		pagedOut = new BitMatrix(widthInChunks, heightInChunks);
+		residentChunks = 0;
+	}
+
+	/**
+	 * Returns the chunk that holds a specific cell, paging it in if necessary.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param create Whether to create the chunk if it does not exist yet.
+	 * @return The chunk, or null if it does not exist and should not be created.
+	 */
+	private Chunk getChunk(int gx, int gy, boolean create)
+	{
+		int cx = gx >> CHUNK_SHIFT;
+		int cy = gy >> CHUNK_SHIFT;
+		int index = cy * widthInChunks + cx;
+		Chunk chunk = chunks[index];
+
+		if (chunk == null)
+		{
+			if (pagedOut.get(cx, cy))
+			{
+				chunk = pageIn(cx, cy);
+			}
+			else if (create)
+			{
+				chunk = new Chunk(cx, cy);
+			}
+			else
+			{
+				return null;
+			}
+
+			chunks[index] = chunk;
+			residentChunks++;
+			trim(index);
+		}
+
+		chunk.lastAccess = ++accessCount;
+		return chunk;
+	}
+
+	/**
+	 * Returns the chunk that holds a specific cell if it is in memory.
+	 * Loot and units pin their chunk in memory, so this is enough to find them.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The chunk, or null if it is not in memory.
+	 */
+	private Chunk getResidentChunk(int gx, int gy)
+	{
+		return chunks[(gy >> CHUNK_SHIFT) * widthInChunks + (gx >> CHUNK_SHIFT)];
+	}
+
+	/**
+	 * Returns the index of a cell within its chunk.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The index.
+	 */
+	private static int getCellIndex(int gx, int gy)
+	{
+		return ((gy & CHUNK_MASK) << CHUNK_SHIFT) + (gx & CHUNK_MASK);
+	}
+
+	/**
+	 * Pages out the least recently used chunks while too many chunks are in memory,
+	 * chunks around the focus are only paged out when nothing else can be.
+	 * Trims down to three quarters of the limit so that the chunks are not searched on every new chunk.
+	 * @param keepIndex The index of a chunk that must stay in memory.
+	 */
+	private void trim(int keepIndex)
+	{
+		if (residentChunks <= maxResidentChunks)
+		{
+			return;
+		}
+
+		ArrayList<Chunk> candidates = new ArrayList<Chunk>();
+
+		for (int i = 0; i < chunks.length; i++)
+		{
+			if (chunks[i] != null && i != keepIndex && chunks[i].pins == 0)
+			{
+				candidates.add(chunks[i]);
+			}
+		}
+
+		final int fx = focusX >> CHUNK_SHIFT;
+		final int fy = focusY >> CHUNK_SHIFT;
+
+		// Sort the candidates so that the chunks away from the focus come first, least recently used first.
+		Collections.sort(candidates, new Comparator<Chunk>()
+		{
+			public int compare(Chunk a, Chunk b)
+			{
+				boolean nearA = Math.max(Math.abs(a.cx - fx), Math.abs(a.cy - fy)) <= FOCUS_RADIUS;
+				boolean nearB = Math.max(Math.abs(b.cx - fx), Math.abs(b.cy - fy)) <= FOCUS_RADIUS;
+
+				if (nearA != nearB)
+				{
+					return nearA ? 1 : -1;
+				}
+
+				return a.lastAccess < b.lastAccess ? -1 : (a.lastAccess > b.lastAccess ? 1 : 0);
+			}
+		});
+
+		int target = maxResidentChunks * 3 / 4;
+
+		for (int i = 0, size = candidates.size(); i < size && residentChunks > target; i++)
+		{
+			pageOut(candidates.get(i));
+		}
+
+		if (grid != null)
+		{
+			grid.onTilesUnloaded();
+		}
+	}
+
+	/**
+	 * Writes a chunk to disk and releases its tiles.
+	 * @param chunk The chunk.
+	 */
+	private void pageOut(Chunk chunk)
+	{
+		byte[] types = new byte[CHUNK_SIZE * CHUNK_SIZE];
+
+		// Store the type of each tile, 0 marks a cell without a tile.
+		for (int i = 0; i < types.length; i++)
+		{
+			if (chunk.tiles[i] != null)
+			{
+				types[i] = (byte) (chunk.tiles[i].getType().ordinal() + 1);
+			}
+		}
+
+		try
+		{
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(getPageFile(chunk.cx, chunk.cy)));
+
+			try
+			{
+				out.write(types);
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		catch (IOException e)
+		{
+			System.out.println("Failed to page out chunk " + chunk.cx + "," + chunk.cy + ": " + e.getMessage());
+			return; // the chunk stays in memory
+		}
+
+		if (grid != null)
+		{
+			grid.onTilesUnload(chunk.tiles);
+		}
+
+		chunks[chunk.cy * widthInChunks + chunk.cx] = null;
+		pagedOut.set(chunk.cx, chunk.cy, true);
+		residentChunks--;
+		pageOuts++;
+	}
+
+	/**
+	 * Reads a chunk back from disk and spawns its tiles again.
+	 * @param cx The x-coordinate of the chunk.
+	 * @param cy The y-coordinate of the chunk.
+	 * @return The chunk.
+	 */
+	private Chunk pageIn(int cx, int cy)
+	{
+		byte[] types = new byte[CHUNK_SIZE * CHUNK_SIZE];
+		File file = getPageFile(cx, cy);
+
+		try
+		{
+			DataInputStream in = new DataInputStream(new FileInputStream(file));
+
+			try
+			{
+				in.readFully(types);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException("Failed to page in chunk " + cx + "," + cy + ".", e);
+		}
+
+		file.delete();
+		pagedOut.set(cx, cy, false);
+		pageIns++;
+
+		Chunk chunk = new Chunk(cx, cy);
+		TileType[] tileTypes = TileType.values();
+
+		for (int i = 0; i < types.length; i++)
+		{
+			if (types[i] != 0)
+			{
+				int gx = (cx << CHUNK_SHIFT) + (i & CHUNK_MASK);
+				int gy = (cy << CHUNK_SHIFT) + (i >> CHUNK_SHIFT);
+				chunk.tiles[i] = createTile(tileTypes[types[i] - 1], gx, gy);
+			}
+		}
+
+		if (grid != null)
+		{
+			grid.onTilesLoad(chunk.tiles);
+		}
+
+		return chunk;
+	}
+
+	/**
+	 * Spawns a tile that is being paged in.
+	 * @param type The type of the tile.
+	 * @param gx The grid x-coordinate of the tile.
+	 * @param gy The grid y-coordinate of the tile.
+	 * @return The tile.
+	 */
+	protected Tile createTile(TileType type, int gx, int gy)
+	{
+		try
+		{
+			return (Tile) TileFactory.getInstance().spawn(type, gx, gy);
+		}
+		catch (InvalidGameObjectException e)
+		{
+			throw new IllegalStateException("Failed to spawn paged in tile " + type + ".", e);
+		}
+	}
+
+	/**
+	 * Returns the file a specific chunk is paged out to.
+	 * @param cx The x-coordinate of the chunk.
+	 * @param cy The y-coordinate of the chunk.
+	 * @return The file.
+	 */
+	private File getPageFile(int cx, int cy)
+	{
+		if (pageDirectory == null)
+		{
+			try
+			{
+				pageDirectory = File.createTempFile("gridwhack", "chunks");
+			}
+			catch (IOException e)
+			{
+				throw new IllegalStateException("Failed to create the chunk page directory.", e);
+			}
+
+			pageDirectory.delete();
+			pageDirectory.mkdir();
+			pageDirectory.deleteOnExit();
+		}
+
+		File file = new File(pageDirectory, "chunk-" + cx + "-" + cy + ".dat");
+		file.deleteOnExit();
+
+		return file;
+	}
+
+	// ------------------
+	// Overridden methods
+	// ------------------
+
+	/**
+	 * Moves the focus and pages out chunks that are now too far from it.
+	 * @param gx The grid x-coordinate of the focus.
+	 * @param gy The grid y-coordinate of the focus.
+	 */
+	@Override
+	public void setFocus(int gx, int gy)
+	{
+		focusX = gx;
+		focusY = gy;
+
+		trim(-1);
+	}
+
+	/**
+	 * Returns the tile in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The tile, or null if the cell has no tile.
+	 */
+	@Override
+	public Tile getTile(int gx, int gy)
+	{
+		Chunk chunk = getChunk(gx, gy, false);
+		return chunk != null ? chunk.tiles[getCellIndex(gx, gy)] : null;
+	}
+
+	/**
+	 * Places a tile in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param tile The tile, or null to clear the cell.
+	 */
+	@Override
+	public void setTile(int gx, int gy, Tile tile)
+	{
+		Chunk chunk = getChunk(gx, gy, tile != null);
+
+		if (chunk != null)
+		{
+			chunk.tiles[getCellIndex(gx, gy)] = tile;
+		}
+	}
+
+	/**
+	 * Returns the loot in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The loot, or null if the cell has no loot.
+	 */
+	@Override
+	public Loot getLoot(int gx, int gy)
+	{
+		Chunk chunk = getResidentChunk(gx, gy);
+		return chunk != null && chunk.loots != null ? chunk.loots[getCellIndex(gx, gy)] : null;
+	}
+
+	/**
+	 * Places loot in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param loot The loot, or null to clear the cell.
+	 */
+	@Override
+	public void setLoot(int gx, int gy, Loot loot)
+	{
+		Chunk chunk = getChunk(gx, gy, loot != null);
+
+		if (chunk != null)
+		{
+			if (chunk.loots == null)
+			{
+				chunk.loots = new Loot[CHUNK_SIZE * CHUNK_SIZE];
+			}
+
+			int index = getCellIndex(gx, gy);
+			chunk.pin(chunk.loots[index], loot);
+			chunk.loots[index] = loot;
+		}
+	}
+
+	/**
+	 * Returns the unit in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The unit, or null if the cell has no unit.
+	 */
+	@Override
+	public Unit getUnit(int gx, int gy)
+	{
+		Chunk chunk = getResidentChunk(gx, gy);
+		return chunk != null && chunk.units != null ? chunk.units[getCellIndex(gx, gy)] : null;
+	}
+
+	/**
+	 * Places a unit in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param unit The unit, or null to clear the cell.
+	 */
+	@Override
+	public void setUnit(int gx, int gy, Unit unit)
+	{
+		Chunk chunk = getChunk(gx, gy, unit != null);
+
+		if (chunk != null)
+		{
+			if (chunk.units == null)
+			{
+				chunk.units = new Unit[CHUNK_SIZE * CHUNK_SIZE];
+			}
+
+			int index = getCellIndex(gx, gy);
+			chunk.pin(chunk.units[index], unit);
+			chunk.units[index] = unit;
+		}
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The number of chunks in memory.
+	 */
+	public int getResidentChunks()
+	{
+		return residentChunks;
+	}
+
+	/**
+	 * @return The number of chunks to keep in memory before paging out.
+	 */
+	public int getMaxResidentChunks()
+	{
+		return maxResidentChunks;
+	}
+
+	/**
+	 * @return The number of times a chunk has been paged out.
+	 */
+	public int getPageOuts()
+	{
+		return pageOuts;
+	}
+
+	/**
+	 * @return The number of times a chunk has been paged in.
+	 */
+	public int getPageIns()
+	{
+		return pageIns;
+	}
+
+	/**
+	 * Private inner class that holds the cells of a single chunk.
+	 */
+	private static class Chunk
+	{
+		private int cx;
+		private int cy;
+		private Tile[] tiles;
+		private Loot[] loots; // created once the chunk gets loot
+		private Unit[] units; // created once the chunk gets a unit
+		private int pins; // number of loots and units, the chunk cannot be paged out while it has any
+		private long lastAccess;
+
+		/**
+		 * Creates the chunk.
+		 * @param cx The x-coordinate of the chunk.
+		 * @param cy The y-coordinate of the chunk.
+		 */
+		public Chunk(int cx, int cy)
+		{
+			this.cx = cx;
+			this.cy = cy;
+
+			tiles = new Tile[CHUNK_SIZE * CHUNK_SIZE];
+		}
+
+		/**
+		 * Updates the pin count when an object in this chunk is replaced.
+		 * @param previous The object that is replaced.
+		 * @param next The object that replaces it.
+		 */
+		public void pin(Object previous, Object next)
+		{
+			if (previous != null)
+			{
+				pins--;
+			}
+
+			if (next != null)
+			{
+				pins++;
+			}
+		}
+	}
+}
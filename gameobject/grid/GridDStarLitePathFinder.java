@@ -0,0 +1,711 @@
+package gridwhack.gameobject.grid;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import gridwhack.gameobject.grid.event.GridEvent;
+import gridwhack.gameobject.grid.event.IGridPassabilityListener;
+import gridwhack.path.*;
+import gridwhack.util.IndexedBinaryHeap;
+
+/**
+ * Grid D* Lite path finder.
+ * Keeps the search tree of each mover between requests and repairs it when the mover
+ * or its target moves or when cells become blocked or unblocked, so that chasing a
+ * target costs about as much as the change instead of a new search. The tree is rooted
+ * at the target so that walking along the path only changes a key modifier, while a
+ * moving target deletes the part of the tree that is not rooted at its new cell
+ * (Moving Target D* Lite). Every path is at most as long as its maximum length, so each
+ * search only covers the window around the mover and its target that such a path can
+ * reach, and only the most recently used searches are kept.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridDStarLitePathFinder extends GridPathFinder implements IGridPassabilityListener
+{
+	// ----------
+	// Properties
+	// ----------
+
+	public static final int DEFAULT_MAX_SEARCHES = 64;
+
+	private static final float INFINITY = Float.POSITIVE_INFINITY;
+	private static final int WINDOW_SLACK = 8; // extra cells around the window so that small moves keep the search
+
+	private int width;
+	private int height;
+	private int maxSearches;
+	private LinkedHashMap<IMover, SearchState> states;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the path finder.
+	 * @param heuristic The heuristic to use.
+	 * @param grid The grid on which to find the path.
+	 */
+	public GridDStarLitePathFinder(IAStarHeuristic heuristic, Grid grid)
+	{
+		this(heuristic, grid, DEFAULT_MAX_SEARCHES);
+	}
+
+	/**
+	 * Creates the path finder.
+	 * @param heuristic The heuristic to use.
+	 * @param grid The grid on which to find the path.
+	 * @param maxSearches The number of movers whose searches to keep.
+	 */
+	public GridDStarLitePathFinder(IAStarHeuristic heuristic, Grid grid, int maxSearches)
+	{
+		super(heuristic, grid);
+
+		this.maxSearches = maxSearches;
+
+		// Iterate in access order so that the search used least recently is forgotten first.
+		states = new LinkedHashMap<IMover, SearchState>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<IMover, SearchState> eldest)
+			{
+				return size() > GridDStarLitePathFinder.this.maxSearches;
+			}
+		};
+	}
+
+	/**
+	 * Returns the path from the starting coordinates to the target coordinates.
+	 * @param sx The starting x-coordinate.
+	 * @param sy The starting y-coordinate.
+	 * @param tx The target x-coordinate.
+	 * @param ty The target y-coordinate.
+	 * @param maxPathLength The maximum length allowed for the path.
+	 * @param mover The entity for which to get the path.
+	 * @return The path, or null if no path available.
+	 */
+	@Override
+	public synchronized GridPath getPath(int sx, int sy, int tx, int ty, int maxPathLength, IMover mover)
+	{
+		expandedNodes = 0;
+
+		// Make sure the destination is not blocked.
+		if (grid.isBlocked(tx, ty, mover))
+		{
+			return null;
+		}
+
+		ensureSize();
+
+		// Make sure that both ends are on the grid.
+		if (sx < 0 || sy < 0 || sx >= width || sy >= height || tx < 0 || ty < 0 || tx >= width || ty >= height)
+		{
+			return null;
+		}
+
+		int distance = Math.abs(tx - sx) + Math.abs(ty - sy);
+
+		// A path always requires at least one step and cannot be shorter than the distance.
+		if (distance == 0 || distance > maxPathLength)
+		{
+			return null;
+		}
+
+		// A cell further than this outside the box around both ends makes the path too long.
+		int margin = Math.min((maxPathLength - distance) / 2, width + height);
+		SearchState state = states.get(mover);
+
+		// Reuse the previous search of this mover if its window still holds every allowed path.
+		if (state == null || !state.contains(sx, sy, tx, ty, margin))
+		{
+			state = new SearchState(sx, sy, tx, ty, margin + WINDOW_SLACK, mover);
+			states.put(mover, state);
+		}
+		else
+		{
+			state.move(sx, sy, tx, ty, mover);
+		}
+
+		if (!state.computeShortestPath(mover))
+		{
+			return null;
+		}
+
+		return state.createPath(maxPathLength);
+	}
+
+	/**
+	 * Forgets the search of a specific mover.
+	 * @param mover The mover.
+	 */
+	public synchronized void forget(IMover mover)
+	{
+		states.remove(mover);
+	}
+
+	/**
+	 * Forgets the searches of all movers when the size of the grid changes.
+	 */
+	private void ensureSize()
+	{
+		int gridWidth = grid.getWidthInCells();
+		int gridHeight = grid.getHeightInCells();
+
+		if (gridWidth != width || gridHeight != height)
+		{
+			width = gridWidth;
+			height = gridHeight;
+			states.clear();
+		}
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The number of movers whose searches are kept.
+	 */
+	public synchronized int getSearchCount()
+	{
+		return states.size();
+	}
+
+	// --------------
+	// Event handlers
+	// --------------
+
+	/**
+	 * Actions to be taken when a cell becomes blocked or unblocked.
+	 * The searches are repaired the next time their mover asks for a path.
+	 * @param e The event.
+	 */
+	public synchronized void onGridPassabilityChange(GridEvent e)
+	{
+		for (SearchState state : states.values())
+		{
+			state.markChanged(e.getGridX(), e.getGridY());
+		}
+	}
+
+	/**
+	 * Private inner class representing the search of a single mover.
+	 * Costs are measured to the root, which is the target of the mover.
+	 * The search only covers a window of the grid, cells are indexed within the window.
+	 */
+	private class SearchState
+	{
+		private int windowX;
+		private int windowY;
+		private int windowWidth;
+		private int windowHeight;
+
+		private int root;
+		private int start;
+		private float keyModifier; // sum of the heuristic distances the start has moved
+
+		private float[] costs; // g-values, the cost of the cheapest known path to the root
+		private float[] lookaheads; // rhs-values, the cost based on the costs of the neighbors
+		private int[] parents;
+		private IndexedBinaryHeap open;
+
+		private int[] touched; // cells that have a finite cost or lookahead
+		private int touchedCount;
+		private boolean[] isTouched;
+
+		private byte[] membership; // 0 = unknown, 1 = in the subtree of the new root, 2 = deleted, 3 = visiting
+		private int[] marked;
+		private int[] chain;
+
+		private int[] changed; // cells that have become blocked or unblocked since the last search
+		private int changedCount;
+
+		/**
+		 * Creates the search.
+		 * @param sx The starting x-coordinate.
+		 * @param sy The starting y-coordinate.
+		 * @param tx The target x-coordinate.
+		 * @param ty The target y-coordinate.
+		 * @param margin The number of cells to cover around the box that holds both ends.
+		 * @param mover The mover.
+		 */
+		public SearchState(int sx, int sy, int tx, int ty, int margin, IMover mover)
+		{
+			windowX = Math.max(0, Math.min(sx, tx) - margin);
+			windowY = Math.max(0, Math.min(sy, ty) - margin);
+			windowWidth = Math.min(width, Math.max(sx, tx) + margin + 1) - windowX;
+			windowHeight = Math.min(height, Math.max(sy, ty) + margin + 1) - windowY;
+
+			int cellCount = windowWidth * windowHeight;
+
+			costs = new float[cellCount];
+			lookaheads = new float[cellCount];
+			parents = new int[cellCount];
+			open = new IndexedBinaryHeap(cellCount);
+			touched = new int[cellCount];
+			isTouched = new boolean[cellCount];
+			membership = new byte[cellCount];
+			marked = new int[cellCount];
+			chain = new int[cellCount];
+			changed = new int[16];
+
+			Arrays.fill(costs, INFINITY);
+			Arrays.fill(lookaheads, INFINITY);
+			Arrays.fill(parents, -1);
+
+			start = getCell(sx, sy);
+			root = getCell(tx, ty);
+			keyModifier = 0f;
+
+			lookaheads[root] = 0f;
+			touch(root);
+			insert(root, mover);
+		}
+
+		/**
+		 * Returns whether the window of this search covers a margin around the box that holds both ends.
+		 * @param sx The starting x-coordinate.
+		 * @param sy The starting y-coordinate.
+		 * @param tx The target x-coordinate.
+		 * @param ty The target y-coordinate.
+		 * @param margin The margin in cells.
+		 * @return Whether the window covers the area.
+		 */
+		public boolean contains(int sx, int sy, int tx, int ty, int margin)
+		{
+			return windowX <= Math.max(0, Math.min(sx, tx) - margin)
+					&& windowY <= Math.max(0, Math.min(sy, ty) - margin)
+					&& windowX + windowWidth >= Math.min(width, Math.max(sx, tx) + margin + 1)
+					&& windowY + windowHeight >= Math.min(height, Math.max(sy, ty) + margin + 1);
+		}
+
+		/**
+		 * Moves the start and the target of this search and applies the changes made to the grid.
+		 * Both ends must be within the window.
+		 * @param sx The new starting x-coordinate.
+		 * @param sy The new starting y-coordinate.
+		 * @param tx The new target x-coordinate.
+		 * @param ty The new target y-coordinate.
+		 * @param mover The mover.
+		 */
+		public void move(int sx, int sy, int tx, int ty, IMover mover)
+		{
+			int start = getCell(sx, sy);
+			int target = getCell(tx, ty);
+
+			// Keys computed for the old start remain valid lower bounds once the distance moved is added.
+			if (start != this.start)
+			{
+				keyModifier += getHeuristicCost(this.start, start, mover);
+				this.start = start;
+			}
+
+			if (target != root)
+			{
+				reroot(target, mover);
+			}
+
+			for (int i = 0; i < changedCount; i++)
+			{
+				int cell = changed[i];
+
+				updateState(cell, mover);
+
+				for (int direction = 0; direction < 4; direction++)
+				{
+					int neighbor = getNeighbor(cell, direction);
+
+					if (neighbor != -1)
+					{
+						updateState(neighbor, mover);
+					}
+				}
+			}
+
+			changedCount = 0;
+		}
+
+		/**
+		 * Makes the given cell the root of the search tree.
+		 * Cells in the subtree of the new root keep their costs, which are now all off by the same amount,
+		 * while the rest of the tree is deleted and only rebuilt where the search needs it.
+		 * @param target The new root.
+		 * @param mover The mover.
+		 */
+		private void reroot(int target, IMover mover)
+		{
+			// A target that is not part of the tree cannot keep anything.
+			if (costs[target] == INFINITY || lookaheads[target] != costs[target])
+			{
+				clear();
+				root = target;
+				lookaheads[root] = 0f;
+				touch(root);
+				insert(root, mover);
+				return;
+			}
+
+			root = target;
+			parents[root] = -1;
+
+			// Find the cells that are not rooted at the new target.
+			int markedCount = 0;
+
+			membership[root] = 1;
+			marked[markedCount++] = root;
+
+			for (int i = 0; i < touchedCount; i++)
+			{
+				int cell = touched[i];
+				int length = 0;
+
+				// Walk up the tree until we find a cell we know about, parents may form
+				// a cycle while the search is inconsistent so mark the cells as we go.
+				while (cell != -1 && membership[cell] == 0)
+				{
+					membership[cell] = 3;
+					chain[length++] = cell;
+					cell = parents[cell];
+				}
+
+				byte result = (byte) ((cell != -1 && membership[cell] == 1) ? 1 : 2);
+
+				for (int j = 0; j < length; j++)
+				{
+					membership[chain[j]] = result;
+					marked[markedCount++] = chain[j];
+				}
+			}
+
+			int deletedCount = 0;
+			int keptCount = 0;
+
+			// Delete the cells outside the subtree and keep track of them at the end of the touched list.
+			for (int i = 0; i < touchedCount; i++)
+			{
+				int cell = touched[i];
+
+				if (membership[cell] == 2)
+				{
+					costs[cell] = INFINITY;
+					lookaheads[cell] = INFINITY;
+					parents[cell] = -1;
+					isTouched[cell] = false;
+
+					if (open.contains(cell))
+					{
+						open.remove(cell);
+					}
+
+					chain[deletedCount++] = cell;
+				}
+				else
+				{
+					touched[keptCount++] = cell;
+				}
+			}
+
+			touchedCount = keptCount;
+
+			for (int i = 0; i < markedCount; i++)
+			{
+				membership[marked[i]] = 0;
+			}
+
+			// Deleted cells next to the subtree can be reached from it again.
+			for (int i = 0; i < deletedCount; i++)
+			{
+				updateState(chain[i], mover);
+			}
+		}
+
+		/**
+		 * Resets every cell of this search.
+		 */
+		private void clear()
+		{
+			for (int i = 0; i < touchedCount; i++)
+			{
+				int cell = touched[i];
+
+				costs[cell] = INFINITY;
+				lookaheads[cell] = INFINITY;
+				parents[cell] = -1;
+				isTouched[cell] = false;
+			}
+
+			touchedCount = 0;
+			open.clear();
+		}
+
+		/**
+		 * Expands cells until the cheapest path from the start is known.
+		 * @param mover The mover.
+		 * @return Whether the target can be reached.
+		 */
+		public boolean computeShortestPath(IMover mover)
+		{
+			while (!open.isEmpty())
+			{
+				float startCost = Math.min(costs[start], lookaheads[start]);
+				float startKey = getKey(start, startCost, mover);
+
+				float topKey = open.getTopKey();
+				float topTieBreak = open.getTopTieBreak();
+
+				// Stop once the start is consistent and nothing cheaper is left in the open list.
+				boolean lower = topKey < startKey || (topKey == startKey && topTieBreak < startCost);
+
+				if (!lower && costs[start] == lookaheads[start])
+				{
+					break;
+				}
+
+				int current = open.peek();
+				float currentCost = Math.min(costs[current], lookaheads[current]);
+				float currentKey = getKey(current, currentCost, mover);
+
+				expandedNodes++;
+
+				// The key is outdated because the start has moved.
+				if (topKey < currentKey)
+				{
+					open.add(current, currentKey, currentCost);
+				}
+				// The cell has become cheaper.
+				else if (costs[current] > lookaheads[current])
+				{
+					costs[current] = lookaheads[current];
+					open.remove(current);
+					updateNeighbors(current, mover);
+				}
+				// The cell has become more expensive.
+				else
+				{
+					costs[current] = INFINITY;
+					updateState(current, mover);
+					updateNeighbors(current, mover);
+				}
+			}
+
+			return lookaheads[start] != INFINITY;
+		}
+
+		/**
+		 * Updates the neighbors of a cell.
+		 * @param cell The cell index.
+		 * @param mover The mover.
+		 */
+		private void updateNeighbors(int cell, IMover mover)
+		{
+			for (int direction = 0; direction < 4; direction++)
+			{
+				int neighbor = getNeighbor(cell, direction);
+
+				if (neighbor != -1)
+				{
+					updateState(neighbor, mover);
+				}
+			}
+		}
+
+		/**
+		 * Recalculates the lookahead of a cell from its neighbors and queues it if it is inconsistent.
+		 * @param cell The cell index.
+		 * @param mover The mover.
+		 */
+		private void updateState(int cell, IMover mover)
+		{
+			if (cell != root)
+			{
+				float lookahead = INFINITY;
+				int parent = -1;
+
+				if (!grid.isBlocked(getX(cell), getY(cell), mover))
+				{
+					for (int direction = 0; direction < 4; direction++)
+					{
+						int neighbor = getNeighbor(cell, direction);
+
+						// Moving towards the root costs as much as entering the neighbor.
+						if (neighbor != -1 && costs[neighbor] != INFINITY)
+						{
+							float cost = costs[neighbor] + grid.getMovementCost(getX(neighbor), getY(neighbor), mover);
+
+							if (cost < lookahead)
+							{
+								lookahead = cost;
+								parent = neighbor;
+							}
+						}
+					}
+				}
+
+				lookaheads[cell] = lookahead;
+				parents[cell] = parent;
+
+				if (lookahead != INFINITY)
+				{
+					touch(cell);
+				}
+			}
+
+			if (costs[cell] != lookaheads[cell])
+			{
+				insert(cell, mover);
+			}
+			else if (open.contains(cell))
+			{
+				open.remove(cell);
+			}
+		}
+
+		/**
+		 * Adds a cell to the open list or updates its key.
+		 * @param cell The cell index.
+		 * @param mover The mover.
+		 */
+		private void insert(int cell, IMover mover)
+		{
+			float cost = Math.min(costs[cell], lookaheads[cell]);
+			open.add(cell, getKey(cell, cost, mover), cost);
+		}
+
+		/**
+		 * Returns the primary key of a cell.
+		 * @param cell The cell index.
+		 * @param cost The smaller one of the cost and the lookahead of the cell.
+		 * @param mover The mover.
+		 * @return The key.
+		 */
+		private float getKey(int cell, float cost, IMover mover)
+		{
+			return cost + getHeuristicCost(start, cell, mover) + keyModifier;
+		}
+
+		/**
+		 * Returns the estimated cost of moving between two cells.
+		 * @param from The cell index to move from.
+		 * @param to The cell index to move to.
+		 * @param mover The mover.
+		 * @return The estimated cost.
+		 */
+		private float getHeuristicCost(int from, int to, IMover mover)
+		{
+			return heuristic.getCost(getX(from), getY(from), getX(to), getY(to), mover);
+		}
+
+		/**
+		 * Returns the index of a cell within the window.
+		 * @param gx The grid x-coordinate of the cell.
+		 * @param gy The grid y-coordinate of the cell.
+		 * @return The index.
+		 */
+		private int getCell(int gx, int gy)
+		{
+			return (gy - windowY) * windowWidth + gx - windowX;
+		}
+
+		/**
+		 * @param cell The cell index.
+		 * @return The grid x-coordinate of the cell.
+		 */
+		private int getX(int cell)
+		{
+			return windowX + cell % windowWidth;
+		}
+
+		/**
+		 * @param cell The cell index.
+		 * @return The grid y-coordinate of the cell.
+		 */
+		private int getY(int cell)
+		{
+			return windowY + cell / windowWidth;
+		}
+
+		/**
+		 * Returns the index of a neighbor of a cell.
+		 * @param cell The cell index.
+		 * @param direction The direction of the neighbor (left, right, up or down).
+		 * @return The neighbor index, or -1 if the neighbor is outside the window.
+		 */
+		private int getNeighbor(int cell, int direction)
+		{
+			int x = cell % windowWidth + (direction == 0 ? -1 : (direction == 1 ? 1 : 0));
+			int y = cell / windowWidth + (direction == 2 ? -1 : (direction == 3 ? 1 : 0));
+
+			if (x < 0 || y < 0 || x >= windowWidth || y >= windowHeight)
+			{
+				return -1;
+			}
+
+			return y * windowWidth + x;
+		}
+
+		/**
+		 * Remembers that a cell has a finite cost or lookahead.
+		 * @param cell The cell index.
+		 */
+		private void touch(int cell)
+		{
+			if (!isTouched[cell])
+			{
+				isTouched[cell] = true;
+				touched[touchedCount++] = cell;
+			}
+		}
+
+		/**
+		 * Remembers that a cell has become blocked or unblocked, cells outside the window are ignored.
+		 * @param gx The grid x-coordinate of the cell.
+		 * @param gy The grid y-coordinate of the cell.
+		 */
+		public void markChanged(int gx, int gy)
+		{
+			if (gx < windowX || gy < windowY || gx >= windowX + windowWidth || gy >= windowY + windowHeight)
+			{
+				return;
+			}
+
+			int cell = getCell(gx, gy);
+
+			if (changedCount == changed.length)
+			{
+				changed = Arrays.copyOf(changed, changedCount * 2);
+			}
+
+			changed[changedCount++] = cell;
+		}
+
+		/**
+		 * Creates the path by following the parents from the start to the root.
+		 * @param maxPathLength The maximum length allowed for the path.
+		 * @return The path, or null if it is too long.
+		 */
+		public GridPath createPath(int maxPathLength)
+		{
+			int length = 0;
+
+			for (int cell = start; cell != root; cell = parents[cell])
+			{
+				// The tree is broken or the path is too long.
+				if (cell == -1 || ++length > maxPathLength)
+				{
+					return null;
+				}
+			}
+
+			GridPath path = new GridPath(grid);
+
+			for (int cell = start; cell != root; cell = parents[cell])
+			{
+				path.appendStep(getX(cell), getY(cell));
+			}
+
+			path.appendStep(getX(root), getY(root));
+
+			return path;
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package gridwhack.gameobject.grid;
+
+import java.util.Arrays;
+
+import gridwhack.gameobject.grid.event.GridEvent;
+import gridwhack.gameobject.grid.event.IGridPassabilityListener;
+import gridwhack.util.IndexedBinaryHeap;
+
+/**
+ * Grid flow field class file.
+ * Stores the cheapest step towards a single target for every cell on the grid
+ * so that any number of movers can follow it without searching for a path.
+ * The flow field can be bounded to a square window around the target on grids
+ * too large to cover in full, cells outside the window cannot reach the target.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridFlowField implements IGridPassabilityListener
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private Grid grid;
+	private int width;
+	private int height;
+	private int range; // the half-size of the window around the target, or 0 to cover the whole grid
+	private int windowX;
+	private int windowY;
+	private int windowWidth;
+	private int windowHeight;
+	private int targetX;
+	private int targetY;
+	private boolean hasTarget;
+	private boolean dirty;
+
+	private float[] costs; // cost of moving from each cell to the target
+	private int[] distances; // number of steps from each cell to the target, or -1 if unreachable
+	private int[] nextSteps; // index of the next cell towards the target, or -1 if there is none
+	private int[] queue; // allocated on the first uniform calculation
+	private IndexedBinaryHeap open; // allocated on the first weighted calculation
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the flow field.
+	 * @param grid the grid the flow field exists on.
+	 */
+	public GridFlowField(Grid grid)
+	{
+		this.grid = grid;
+
+		range = 0;
+		hasTarget = false;
+		dirty = false;
+	}
+
+	/**
+	 * Sets the target of this flow field and recalculates it.
+	 * @param tgx the target grid x-coordinate.
+	 * @param tgy the target grid y-coordinate.
+	 */
+	public synchronized void update(int tgx, int tgy)
+	{
+		targetX = tgx;
+		targetY = tgy;
+		hasTarget = true;
+
+		calculate();
+	}
+
+	/**
+	 * Recalculates the flow field from the current target outwards.
+	 */
+	private void calculate()
+	{
+		dirty = false;
+
+		width = grid.getWidthInCells();
+		height = grid.getHeightInCells();
+		windowWidth = 0;
+		windowHeight = 0;
+
+		// Make sure that the target is on the grid and that it can be reached.
+		if (targetX < 0 || targetY < 0 || targetX >= width || targetY >= height || grid.isBlocked(targetX, targetY))
+		{
+			return;
+		}
+
+		if (range > 0)
+		{
+			windowX = Math.max(0, targetX - range);
+			windowY = Math.max(0, targetY - range);
+			windowWidth = Math.min(width, targetX + range + 1) - windowX;
+			windowHeight = Math.min(height, targetY + range + 1) - windowY;
+		}
+		else
+		{
+			windowX = 0;
+			windowY = 0;
+			windowWidth = width;
+			windowHeight = height;
+		}
+
+		int cellCount = windowWidth * windowHeight;
+
+		ensureCells(cellCount);
+
+		Arrays.fill(costs, 0, cellCount, Float.POSITIVE_INFINITY);
+		Arrays.fill(distances, 0, cellCount, -1);
+		Arrays.fill(nextSteps, 0, cellCount, -1);
+
+		int target = (targetY - windowY) * windowWidth + (targetX - windowX);
+
+		costs[target] = 0f;
+		distances[target] = 0;
+
+		// A breadth-first search is enough when moving costs the same everywhere.
+		if (grid.hasUniformMovementCost())
+		{
+			calculateUniform(target);
+		}
+		else
+		{
+			calculateWeighted(target);
+		}
+	}
+
+	/**
+	 * Calculates the flow field using a breadth-first search.
+	 * @param target the target cell index.
+	 */
+	private void calculateUniform(int target)
+	{
+		int head = 0;
+		int tail = 0;
+
+		if (queue == null || queue.length < costs.length)
+		{
+			queue = new int[costs.length];
+		}
+
+		queue[tail++] = target;
+
+		while (head < tail)
+		{
+			int current = queue[head++];
+			int x = current % windowWidth + windowX;
+			int y = current / windowWidth + windowY;
+
+			for (int i = 0; i < 4; i++)
+			{
+				int neighbor = getNeighbor(x, y, i);
+
+				// Each cell is reached first along one of its shortest paths.
+				if (neighbor != -1 && distances[neighbor] == -1)
+				{
+					costs[neighbor] = costs[current] + 1f;
+					distances[neighbor] = distances[current] + 1;
+					nextSteps[neighbor] = current;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calculates the flow field using Dijkstra's algorithm.
+	 * @param target the target cell index.
+	 */
+	private void calculateWeighted(int target)
+	{
+		if (open == null)
+		{
+			open = new IndexedBinaryHeap(costs.length);
+		}
+		else
+		{
+			open.ensureCapacity(costs.length);
+		}
+
+		open.clear();
+		open.add(target, 0f, 0f);
+
+		while (!open.isEmpty())
+		{
+			int current = open.poll();
+			int x = current % windowWidth + windowX;
+			int y = current / windowWidth + windowY;
+
+			// Moving from a neighbor to this cell costs as much as entering this cell.
+			float cost = costs[current] + grid.getMovementCost(x, y, null);
+
+			for (int i = 0; i < 4; i++)
+			{
+				int neighbor = getNeighbor(x, y, i);
+
+				if (neighbor != -1 && cost < costs[neighbor])
+				{
+					costs[neighbor] = cost;
+					distances[neighbor] = distances[current] + 1;
+					nextSteps[neighbor] = current;
+					open.add(neighbor, cost, 0f);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of a walkable neighbor of a cell.
+	 * @param x the x-coordinate of the cell.
+	 * @param y the y-coordinate of the cell.
+	 * @param direction the direction of the neighbor (left, right, up or down).
+	 * @return the window index of the neighbor, or -1 if the neighbor is outside the window or blocked.
+	 */
+	private int getNeighbor(int x, int y, int direction)
+	{
+		int nx = x + (direction == 0 ? -1 : (direction == 1 ? 1 : 0));
+		int ny = y + (direction == 2 ? -1 : (direction == 3 ? 1 : 0));
+
+		if (!contains(nx, ny) || grid.isBlocked(nx, ny))
+		{
+			return -1;
+		}
+
+		return (ny - windowY) * windowWidth + (nx - windowX);
+	}
+
+	/**
+	 * Makes sure the arrays can hold a specific number of cells.
+	 * The arrays only grow, the search structures are left to the branch that needs them.
+	 * @param cellCount the number of cells in the window.
+	 */
+	private void ensureCells(int cellCount)
+	{
+		if (costs == null || costs.length < cellCount)
+		{
+			costs = new float[cellCount];
+			distances = new int[cellCount];
+			nextSteps = new int[cellCount];
+		}
+	}
+
+	/**
+	 * Recalculates the flow field if the grid has changed since it was last calculated.
+	 * @return whether the flow field has a target.
+	 */
+	private boolean validate()
+	{
+		if (hasTarget && dirty)
+		{
+			calculate();
+		}
+
+		return hasTarget;
+	}
+
+	/**
+	 * Returns whether the given coordinates are within the window covered by this flow field.
+	 * @param gx the grid x-coordinate.
+	 * @param gy the grid y-coordinate.
+	 * @return whether the coordinates are valid.
+	 */
+	private boolean contains(int gx, int gy)
+	{
+		return gx >= windowX && gy >= windowY && gx < windowX + windowWidth && gy < windowY + windowHeight;
+	}
+
+	// --------------
+	// Event handlers
+	// --------------
+
+	/**
+	 * Actions to be taken when a cell becomes blocked or unblocked.
+	 * @param e the event.
+	 */
+	public synchronized void onGridPassabilityChange(GridEvent e)
+	{
+		// Recalculate lazily so that changing many tiles at once only costs a single update.
+		dirty = true;
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * Returns the index of the next cell to move to from the given cell.
+	 * @param gx the grid x-coordinate.
+	 * @param gy the grid y-coordinate.
+	 * @return the cell index (y * width + x), or -1 if the target cannot be reached or is already reached.
+	 */
+	public synchronized int getNextStep(int gx, int gy)
+	{
+		if (!validate() || !contains(gx, gy))
+		{
+			return -1;
+		}
+
+		int next = nextSteps[(gy - windowY) * windowWidth + (gx - windowX)];
+
+		if (next == -1)
+		{
+			return -1;
+		}
+
+		return (next / windowWidth + windowY) * width + next % windowWidth + windowX;
+	}
+
+	/**
+	 * Returns the number of steps from the given cell to the target.
+	 * @param gx the grid x-coordinate.
+	 * @param gy the grid y-coordinate.
+	 * @return the distance, or -1 if the target cannot be reached.
+	 */
+	public synchronized int getDistance(int gx, int gy)
+	{
+		if (!validate() || !contains(gx, gy))
+		{
+			return -1;
+		}
+
+		return distances[(gy - windowY) * windowWidth + (gx - windowX)];
+	}
+
+	/**
+	 * Returns the cost of moving from the given cell to the target.
+	 * @param gx the grid x-coordinate.
+	 * @param gy the grid y-coordinate.
+	 * @return the cost, or infinity if the target cannot be reached.
+	 */
+	public synchronized float getCost(int gx, int gy)
+	{
+		if (!validate() || !contains(gx, gy))
+		{
+			return Float.POSITIVE_INFINITY;
+		}
+
+		return costs[(gy - windowY) * windowWidth + (gx - windowX)];
+	}
+
+	/**
+	 * @return the target grid x-coordinate.
+	 */
+	public int getTargetX()
+	{
+		return targetX;
+	}
+
+	/**
+	 * @return the target grid y-coordinate.
+	 */
+	public int getTargetY()
+	{
+		return targetY;
+	}
+
+	/**
+	 * @return the width of the grid the cell indices of the flow field refer to.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * @return the half-size of the window around the target, or 0 if the whole grid is covered.
+	 */
+	public int getRange()
+	{
+		return range;
+	}
+
+	/**
+	 * Bounds this flow field to a window around the target.
+	 * @param range the half-size of the window in cells, or 0 to cover the whole grid.
+	 */
+	public synchronized void setRange(int range)
+	{
+		this.range = range;
+
+		dirty = true;
+	}
+}
@@ -0,0 +1,108 @@
+package gridwhack.gameobject.grid;
+
+import gridwhack.path.IMover;
+
+/**
+ * Grid hierarchical path class file.
+ * Path that only knows the cells of its first segment and refines
+ * the remaining segments between the abstract waypoints on demand.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridHierarchicalPath extends GridPath
+{
+	private GridHierarchicalPathFinder pathFinder;
+	private IMover mover;
+	private int[] waypoints; // cell indices of the abstract waypoints
+	private int waypointIndex; // index of the next waypoint to refine
+	private int endX;
+	private int endY;
+
+	/**
+	 * Creates the path.
+	 * @param grid the grid the path exists on.
+	 * @param pathFinder the path finder used for refining the segments.
+	 * @param mover the mover the path was created for.
+	 * @param waypoints the cell indices of the abstract waypoints, including the start and the end.
+	 */
+	public GridHierarchicalPath(Grid grid, GridHierarchicalPathFinder pathFinder, IMover mover, int[] waypoints)
+	{
+		super(grid);
+
+		this.pathFinder = pathFinder;
+		this.mover = mover;
+		this.waypoints = waypoints;
+
+		int width = grid.getWidthInCells();
+		int end = waypoints[waypoints.length - 1];
+
+		endX = end % width;
+		endY = end / width;
+		waypointIndex = 1; // the first waypoint is the start
+	}
+
+	/**
+	 * Refines the next segment of this path.
+	 * @return whether the segment could be refined.
+	 */
+	public boolean refineNextSegment()
+	{
+		if (waypointIndex >= waypoints.length)
+		{
+			return false;
+		}
+
+		GridPath segment = pathFinder.refine(waypoints[waypointIndex - 1], waypoints[waypointIndex], mover);
+
+		// The segment is no longer walkable, the path ends here.
+		if (segment == null)
+		{
+			waypointIndex = waypoints.length;
+			return false;
+		}
+
+		// The first step of the segment is the last step of the previous segment.
+		for (int i = getLength() > 0 ? 1 : 0, length = segment.getLength(); i < length; i++)
+		{
+			appendStep(segment.getX(i), segment.getY(i));
+		}
+
+		waypointIndex++;
+		return true;
+	}
+
+	/**
+	 * @return whether the path has a next step.
+	 */
+	@Override
+	public boolean hasNextStep()
+	{
+		// Refine segments until we have a step to take or we run out of segments.
+		while (!super.hasNextStep())
+		{
+			if (!refineNextSegment())
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return the x-coordinate of the cell this path leads to.
+	 */
+	@Override
+	public int getEndX()
+	{
+		return endX;
+	}
+
+	/**
+	 * @return the y-coordinate of the cell this path leads to.
+	 */
+	@Override
+	public int getEndY()
+	{
+		return endY;
+	}
+}
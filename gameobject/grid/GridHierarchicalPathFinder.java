@@ -0,0 +1,709 @@
+package gridwhack.gameobject.grid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import gridwhack.gameobject.grid.event.GridEvent;
+import gridwhack.gameobject.grid.event.IGridPassabilityListener;
+import gridwhack.path.*;
+import gridwhack.util.IndexedBinaryHeap;
+
+/**
+ * Grid hierarchical path finder (HPA*).
+ * Partitions the grid into fixed-size clusters connected through entrances on their borders
+ * and searches the resulting abstract graph instead of the individual cells. Only the first
+ * segment of the abstract path is refined into cells, the rest is refined as the mover walks it.
+ * The abstraction assumes that tiles block every mover alike.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridHierarchicalPathFinder extends GridBinaryHeapPathFinder implements IGridPassabilityListener
+{
+	// ----------
+	// Properties
+	// ----------
+
+	public static final int DEFAULT_CLUSTER_SIZE = 10;
+	private static final int MAX_SINGLE_TRANSITION_LENGTH = 6; // longer entrances get a transition at both ends
+
+	private int clusterSize;
+	private int clustersX;
+	private int clustersY;
+	private Cluster[] clusters;
+	private int[][] eastTransitions; // (cell, cell in the cluster to the east) pairs for each cluster
+	private int[][] southTransitions; // (cell, cell in the cluster to the south) pairs for each cluster
+	private boolean[] dirtyEast;
+	private boolean[] dirtySouth;
+
+	private IndexedBinaryHeap localOpen;
+	private float[] localCosts;
+	private int[] localDepths;
+	private float[] startCosts;
+	private int[] startDepths;
+	private float[] goalCosts;
+	private int[] goalDepths;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the path finder.
+	 * @param heuristic The heuristic to use.
+	 * @param grid The grid on which to find the path.
+	 */
+	public GridHierarchicalPathFinder(IAStarHeuristic heuristic, Grid grid)
+	{
+		this(heuristic, grid, DEFAULT_CLUSTER_SIZE);
+	}
+
+	/**
+	 * Creates the path finder.
+	 * @param heuristic The heuristic to use.
+	 * @param grid The grid on which to find the path.
+	 * @param clusterSize The width and height of a cluster in cells.
+	 */
+	public GridHierarchicalPathFinder(IAStarHeuristic heuristic, Grid grid, int clusterSize)
+	{
+		super(heuristic, grid);
+
+		this.clusterSize = clusterSize;
+
+		int clusterCellCount = clusterSize * clusterSize;
+
+		localOpen = new IndexedBinaryHeap(clusterCellCount);
+		localCosts = new float[clusterCellCount];
+		localDepths = new int[clusterCellCount];
+		startCosts = new float[clusterCellCount];
+		startDepths = new int[clusterCellCount];
+		goalCosts = new float[clusterCellCount];
+		goalDepths = new int[clusterCellCount];
+	}
+
+	/**
+	 * Returns the path from the starting coordinates to the target coordinates.
+	 * @param sx The starting x-coordinate.
+	 * @param sy The starting y-coordinate.
+	 * @param tx The target x-coordinate.
+	 * @param ty The target y-coordinate.
+	 * @param maxPathLength The maximum length allowed for the path.
+	 * @param mover The entity for which to get the path.
+	 * @return The path, or null if no path available.
+	 */
+	@Override
+	public GridPath getPath(int sx, int sy, int tx, int ty, int maxPathLength, IMover mover)
+	{
+		// Targets within a cluster's reach are cheaper to find directly.
+		if (Math.abs(tx - sx) + Math.abs(ty - sy) <= clusterSize)
+		{
+			return super.getPath(sx, sy, tx, ty, maxPathLength, mover);
+		}
+
+		expandedNodes = 0;
+
+		// Make sure the destination is not blocked.
+		if (isBlocked(tx, ty, mover))
+		{
+			return null;
+		}
+
+		updateClusters();
+		ensureNodes();
+		nextGeneration();
+
+		// Make sure that both ends are on the grid.
+		if (sx < 0 || sy < 0 || sx >= width || sy >= height || tx < 0 || ty < 0 || tx >= width || ty >= height)
+		{
+			return null;
+		}
+
+		int start = sy * width + sx;
+		int goal = ty * width + tx;
+		Cluster startCluster = getCluster(sx, sy);
+		Cluster goalCluster = getCluster(tx, ty);
+
+		// Connect the start and the goal to the entrances of their clusters.
+		searchCluster(startCluster, start, false, mover);
+		System.arraycopy(localCosts, 0, startCosts, 0, startCosts.length);
+		System.arraycopy(localDepths, 0, startDepths, 0, startDepths.length);
+
+		searchCluster(goalCluster, goal, true, mover);
+		System.arraycopy(localCosts, 0, goalCosts, 0, goalCosts.length);
+		System.arraycopy(localDepths, 0, goalDepths, 0, goalDepths.length);
+
+		reach(start, -1, 0f, 0);
+		open.add(start, heuristic.getCost(sx, sy, tx, ty, mover), 0f);
+
+		while (!open.isEmpty())
+		{
+			int current = open.poll();
+
+			// We have reached the goal.
+			if (current == goal)
+			{
+				return createHierarchicalPath(start, goal, mover);
+			}
+
+			expandedNodes++;
+
+			int cx = current % width;
+			int cy = current / width;
+			Cluster cluster = getCluster(cx, cy);
+
+			if (current == start)
+			{
+				for (int j = 0; j < startCluster.nodes.length; j++)
+				{
+					int node = startCluster.nodes[j];
+					int local = startCluster.getLocalIndex(node % width, node / width);
+					relax(current, node, startCosts[local], startDepths[local], tx, ty, maxPathLength, mover);
+				}
+			}
+
+			int index = cluster.getNodeIndex(current);
+
+			// Follow the precomputed edges of entrance nodes.
+			if (index != -1)
+			{
+				for (int j = 0; j < cluster.nodes.length; j++)
+				{
+					if (j != index)
+					{
+						relax(current, cluster.nodes[j], cluster.costs[index][j], cluster.lengths[index][j], tx, ty, maxPathLength, mover);
+					}
+				}
+
+				for (int partner : cluster.partners[index])
+				{
+					relax(current, partner, getMovementCost(partner % width, partner / width, mover), 1, tx, ty, maxPathLength, mover);
+				}
+			}
+
+			// Nodes in the goal cluster can move straight to the goal.
+			if (cluster == goalCluster)
+			{
+				int local = goalCluster.getLocalIndex(cx, cy);
+				relax(current, goal, goalCosts[local], goalDepths[local], tx, ty, maxPathLength, mover);
+			}
+		}
+
+		// No path available.
+		return null;
+	}
+
+	/**
+	 * Relaxes an edge of the abstract graph.
+	 * @param current The node the edge starts from.
+	 * @param node The node the edge leads to.
+	 * @param cost The cost of the edge.
+	 * @param length The number of steps along the edge.
+	 * @param tx The target x-coordinate.
+	 * @param ty The target y-coordinate.
+	 * @param maxPathLength The maximum length allowed for the path.
+	 * @param mover The mover.
+	 */
+	private void relax(int current, int node, float cost, int length, int tx, int ty, int maxPathLength, IMover mover)
+	{
+		// Unreachable nodes have an infinite cost.
+		if (cost == Float.POSITIVE_INFINITY)
+		{
+			return;
+		}
+
+		float movementCost = movementCosts[current] + cost;
+		int depth = depths[current] + length;
+
+		if (depth > maxPathLength || (openGenerations[node] == generation && movementCost >= movementCosts[node]))
+		{
+			return;
+		}
+
+		reach(node, current, movementCost, depth);
+		open.add(node, movementCost + heuristic.getCost(node % width, node / width, tx, ty, mover), -movementCost);
+	}
+
+	/**
+	 * Creates the path from the abstract nodes and refines its first segment.
+	 * @param start The start node index.
+	 * @param goal The goal node index.
+	 * @param mover The mover.
+	 * @return The path, or null if the first segment could not be refined.
+	 */
+	private GridPath createHierarchicalPath(int start, int goal, IMover mover)
+	{
+		int count = 0;
+
+		for (int node = goal; node != -1; node = parents[node])
+		{
+			count++;
+		}
+
+		int[] waypoints = new int[count];
+
+		for (int node = goal; node != -1; node = parents[node])
+		{
+			waypoints[--count] = node;
+		}
+
+		int abstractExpandedNodes = expandedNodes;
+
+		GridHierarchicalPath path = new GridHierarchicalPath(grid, this, mover, waypoints);
+		boolean refined = path.refineNextSegment();
+
+		expandedNodes += abstractExpandedNodes;
+
+		return refined ? path : null;
+	}
+
+	/**
+	 * Refines a single segment of an abstract path into cells.
+	 * @param from The cell index the segment starts from.
+	 * @param to The cell index the segment leads to.
+	 * @param mover The mover.
+	 * @return The path for the segment, or null if it is no longer walkable.
+	 */
+	public GridPath refine(int from, int to, IMover mover)
+	{
+		// Segments never leave the cluster or cross more than a single border.
+		return super.getPath(from % width, from / width, to % width, to / width, clusterSize * clusterSize, mover);
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm from a cell within the bounds of its cluster.
+	 * The resulting costs and depths are stored in the local arrays.
+	 * @param cluster The cluster.
+	 * @param source The cell index to search from.
+	 * @param reverse Whether to calculate the costs of moving to the source instead of from it.
+	 * @param mover The mover.
+	 */
+	private void searchCluster(Cluster cluster, int source, boolean reverse, IMover mover)
+	{
+		int clusterWidth = cluster.x1 - cluster.x0;
+		int clusterHeight = cluster.y1 - cluster.y0;
+
+		Arrays.fill(localCosts, Float.POSITIVE_INFINITY);
+		localOpen.clear();
+
+		int first = cluster.getLocalIndex(source % width, source / width);
+		localCosts[first] = 0f;
+		localDepths[first] = 0;
+		localOpen.add(first, 0f, 0f);
+
+		while (!localOpen.isEmpty())
+		{
+			int current = localOpen.poll();
+			int lx = current % clusterWidth;
+			int ly = current / clusterWidth;
+
+			for (int i = 0; i < 4; i++)
+			{
+				int nx = lx + (i == 0 ? -1 : (i == 1 ? 1 : 0));
+				int ny = ly + (i == 2 ? -1 : (i == 3 ? 1 : 0));
+
+				if (nx < 0 || ny < 0 || nx >= clusterWidth || ny >= clusterHeight
+						|| isBlocked(cluster.x0 + nx, cluster.y0 + ny, mover))
+				{
+					continue;
+				}
+
+				int neighbor = ny * clusterWidth + nx;
+
+				// Moving towards the source means paying for entering the current cell instead of the neighbor.
+				float cost = reverse
+						? getMovementCost(cluster.x0 + lx, cluster.y0 + ly, mover)
+						: getMovementCost(cluster.x0 + nx, cluster.y0 + ny, mover);
+
+				float movementCost = localCosts[current] + cost;
+
+				if (movementCost < localCosts[neighbor])
+				{
+					localCosts[neighbor] = movementCost;
+					localDepths[neighbor] = localDepths[current] + 1;
+					localOpen.add(neighbor, movementCost, 0f);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the borders and clusters that have changed since the last search.
+	 */
+	private void updateClusters()
+	{
+		ensureClusters();
+
+		for (int i = 0; i < clusters.length; i++)
+		{
+			if (dirtyEast[i])
+			{
+				eastTransitions[i] = findTransitions(clusters[i], true);
+				dirtyEast[i] = false;
+			}
+
+			if (dirtySouth[i])
+			{
+				southTransitions[i] = findTransitions(clusters[i], false);
+				dirtySouth[i] = false;
+			}
+		}
+
+		for (int i = 0; i < clusters.length; i++)
+		{
+			if (clusters[i].dirty)
+			{
+				buildCluster(i);
+			}
+		}
+	}
+
+	/**
+	 * Creates the clusters if the grid has not been partitioned yet or its size has changed.
+	 */
+	private void ensureClusters()
+	{
+		ensureNodes();
+
+		int countX = (width + clusterSize - 1) / clusterSize;
+		int countY = (height + clusterSize - 1) / clusterSize;
+
+		if (clusters != null && countX == clustersX && countY == clustersY)
+		{
+			return;
+		}
+
+		clustersX = countX;
+		clustersY = countY;
+		clusters = new Cluster[clustersX * clustersY];
+		eastTransitions = new int[clusters.length][];
+		southTransitions = new int[clusters.length][];
+		dirtyEast = new boolean[clusters.length];
+		dirtySouth = new boolean[clusters.length];
+
+		for (int cy = 0; cy < clustersY; cy++)
+		{
+			for (int cx = 0; cx < clustersX; cx++)
+			{
+				int x0 = cx * clusterSize;
+				int y0 = cy * clusterSize;
+				clusters[cy * clustersX + cx] = new Cluster(cx, cy, x0, y0, Math.min(x0 + clusterSize, width), Math.min(y0 + clusterSize, height));
+			}
+		}
+
+		Arrays.fill(dirtyEast, true);
+		Arrays.fill(dirtySouth, true);
+	}
+
+	/**
+	 * Finds the transitions from a cluster to its eastern or southern neighbor.
+	 * A transition is placed in the middle of each entrance, long entrances get one at both ends.
+	 * @param cluster The cluster.
+	 * @param east Whether to look at the eastern border, otherwise the southern border is used.
+	 * @return The transitions as (cell, neighbor cell) pairs.
+	 */
+	private int[] findTransitions(Cluster cluster, boolean east)
+	{
+		// The clusters on the edge of the grid have no neighbor on that side.
+		if ((east && cluster.cx + 1 >= clustersX) || (!east && cluster.cy + 1 >= clustersY))
+		{
+			return new int[0];
+		}
+
+		ArrayList<Integer> transitions = new ArrayList<Integer>();
+		int length = east ? cluster.y1 - cluster.y0 : cluster.x1 - cluster.x0;
+		int runStart = -1;
+
+		// Loop one past the border so that the last entrance is closed as well.
+		for (int i = 0; i <= length; i++)
+		{
+			boolean open = false;
+
+			if (i < length)
+			{
+				int x = east ? cluster.x1 - 1 : cluster.x0 + i;
+				int y = east ? cluster.y0 + i : cluster.y1 - 1;
+				open = !isBlocked(x, y, null) && !isBlocked(east ? x + 1 : x, east ? y : y + 1, null);
+			}
+
+			if (open && runStart == -1)
+			{
+				runStart = i;
+			}
+			else if (!open && runStart != -1)
+			{
+				int runEnd = i - 1;
+
+				if (runEnd - runStart + 1 < MAX_SINGLE_TRANSITION_LENGTH)
+				{
+					addTransition(transitions, cluster, east, (runStart + runEnd) / 2);
+				}
+				else
+				{
+					addTransition(transitions, cluster, east, runStart);
+					addTransition(transitions, cluster, east, runEnd);
+				}
+
+				runStart = -1;
+			}
+		}
+
+		int[] result = new int[transitions.size()];
+
+		for (int i = 0; i < result.length; i++)
+		{
+			result[i] = transitions.get(i);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Adds a transition across a cluster border.
+	 * @param transitions The transitions.
+	 * @param cluster The cluster.
+	 * @param east Whether the transition crosses the eastern border, otherwise the southern border.
+	 * @param offset The offset of the transition along the border.
+	 */
+	private void addTransition(ArrayList<Integer> transitions, Cluster cluster, boolean east, int offset)
+	{
+		int x = east ? cluster.x1 - 1 : cluster.x0 + offset;
+		int y = east ? cluster.y0 + offset : cluster.y1 - 1;
+
+		transitions.add(y * width + x);
+		transitions.add(east ? y * width + x + 1 : (y + 1) * width + x);
+	}
+
+	/**
+	 * Collects the entrance nodes of a cluster and calculates the costs between them.
+	 * @param index The cluster index.
+	 */
+	private void buildCluster(int index)
+	{
+		Cluster cluster = clusters[index];
+
+		// Map each entrance node to the nodes on the other side of the border.
+		LinkedHashMap<Integer, ArrayList<Integer>> nodes = new LinkedHashMap<Integer, ArrayList<Integer>>();
+
+		addNodes(nodes, eastTransitions[index], false);
+		addNodes(nodes, southTransitions[index], false);
+
+		if (cluster.cx > 0)
+		{
+			addNodes(nodes, eastTransitions[index - 1], true);
+		}
+
+		if (cluster.cy > 0)
+		{
+			addNodes(nodes, southTransitions[index - clustersX], true);
+		}
+
+		int nodeCount = nodes.size();
+
+		cluster.nodes = new int[nodeCount];
+		cluster.partners = new int[nodeCount][];
+		cluster.costs = new float[nodeCount][nodeCount];
+		cluster.lengths = new int[nodeCount][nodeCount];
+
+		int i = 0;
+
+		for (Map.Entry<Integer, ArrayList<Integer>> entry : nodes.entrySet())
+		{
+			ArrayList<Integer> partners = entry.getValue();
+
+			cluster.nodes[i] = entry.getKey();
+			cluster.partners[i] = new int[partners.size()];
+
+			for (int j = 0; j < partners.size(); j++)
+			{
+				cluster.partners[i][j] = partners.get(j);
+			}
+
+			i++;
+		}
+
+		// Calculate the cost of moving between each pair of entrance nodes within the cluster.
+		for (i = 0; i < nodeCount; i++)
+		{
+			searchCluster(cluster, cluster.nodes[i], false, null);
+
+			for (int j = 0; j < nodeCount; j++)
+			{
+				int local = cluster.getLocalIndex(cluster.nodes[j] % width, cluster.nodes[j] / width);
+				cluster.costs[i][j] = localCosts[local];
+				cluster.lengths[i][j] = localDepths[local];
+			}
+		}
+
+		cluster.dirty = false;
+	}
+
+	/**
+	 * Adds the nodes of a border to the nodes of a cluster.
+	 * @param nodes The nodes of the cluster mapped to their partners.
+	 * @param transitions The transitions across the border.
+	 * @param second Whether the cluster is on the second side of the transitions.
+	 */
+	private void addNodes(LinkedHashMap<Integer, ArrayList<Integer>> nodes, int[] transitions, boolean second)
+	{
+		for (int i = 0; i < transitions.length; i += 2)
+		{
+			int node = second ? transitions[i + 1] : transitions[i];
+			int partner = second ? transitions[i] : transitions[i + 1];
+
+			ArrayList<Integer> partners = nodes.get(node);
+
+			if (partners == null)
+			{
+				partners = new ArrayList<Integer>();
+				nodes.put(node, partners);
+			}
+
+			partners.add(partner);
+		}
+	}
+
+	/**
+	 * Returns the cluster that contains the given cell.
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @return The cluster.
+	 */
+	private Cluster getCluster(int x, int y)
+	{
+		return clusters[(y / clusterSize) * clustersX + (x / clusterSize)];
+	}
+
+	// --------------
+	// Event handlers
+	// --------------
+
+	/**
+	 * Actions to be taken when a cell becomes blocked or unblocked.
+	 * Only the cluster containing the cell is rebuilt, along with its neighbors
+	 * when the cell lies on a border.
+	 * @param e The event.
+	 */
+	public void onGridPassabilityChange(GridEvent e)
+	{
+		// Nothing to invalidate before the grid has been partitioned.
+		if (clusters == null)
+		{
+			return;
+		}
+
+		int x = e.getGridX();
+		int y = e.getGridY();
+		int cx = x / clusterSize;
+		int cy = y / clusterSize;
+		int index = cy * clustersX + cx;
+		Cluster cluster = clusters[index];
+
+		cluster.dirty = true;
+
+		if (x == cluster.x0 && cx > 0)
+		{
+			dirtyEast[index - 1] = true;
+			clusters[index - 1].dirty = true;
+		}
+
+		if (x == cluster.x1 - 1 && cx + 1 < clustersX)
+		{
+			dirtyEast[index] = true;
+			clusters[index + 1].dirty = true;
+		}
+
+		if (y == cluster.y0 && cy > 0)
+		{
+			dirtySouth[index - clustersX] = true;
+			clusters[index - clustersX].dirty = true;
+		}
+
+		if (y == cluster.y1 - 1 && cy + 1 < clustersY)
+		{
+			dirtySouth[index] = true;
+			clusters[index + clustersX].dirty = true;
+		}
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The width and height of a cluster in cells.
+	 */
+	public int getClusterSize()
+	{
+		return clusterSize;
+	}
+
+	/**
+	 * Private inner class representing a single cluster of cells.
+	 */
+	private class Cluster
+	{
+		private int cx;
+		private int cy;
+		private int x0;
+		private int y0;
+		private int x1; // exclusive
+		private int y1; // exclusive
+		private int[] nodes; // cell indices of the entrance nodes
+		private int[][] partners; // cell indices of the nodes across the border for each node
+		private float[][] costs; // cost of moving between each pair of nodes
+		private int[][] lengths; // number of steps between each pair of nodes
+		private boolean dirty;
+
+		/**
+		 * Creates the cluster.
+		 * @param cx The x-coordinate of the cluster.
+		 * @param cy The y-coordinate of the cluster.
+		 * @param x0 The first x-coordinate within the cluster.
+		 * @param y0 The first y-coordinate within the cluster.
+		 * @param x1 The first x-coordinate past the cluster.
+		 * @param y1 The first y-coordinate past the cluster.
+		 */
+		public Cluster(int cx, int cy, int x0, int y0, int x1, int y1)
+		{
+			this.cx = cx;
+			this.cy = cy;
+			this.x0 = x0;
+			this.y0 = y0;
+			this.x1 = x1;
+			this.y1 = y1;
+
+			nodes = new int[0];
+			partners = new int[0][];
+			dirty = true;
+		}
+
+		/**
+		 * Returns the index of a cell within this cluster.
+		 * @param x The x-coordinate.
+		 * @param y The y-coordinate.
+		 * @return The local index.
+		 */
+		public int getLocalIndex(int x, int y)
+		{
+			return (y - y0) * (x1 - x0) + (x - x0);
+		}
+
+		/**
+		 * Returns the index of an entrance node in this cluster.
+		 * @param cell The cell index.
+		 * @return The node index, or -1 if the cell is not an entrance node.
+		 */
+		public int getNodeIndex(int cell)
+		{
+			for (int i = 0; i < nodes.length; i++)
+			{
+				if (nodes[i] == cell)
+				{
+					return i;
+				}
+			}
+
+			return -1;
+		}
+	}
+}
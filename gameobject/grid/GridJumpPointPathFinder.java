@@ -0,0 +1,416 @@
+package gridwhack.gameobject.grid;
+
+import java.util.Arrays;
+
+import gridwhack.path.*;
+
+/**
+ * Grid jump point search path finder.
+ * Prunes the symmetric paths that A* expands on grids where moving costs the same
+ * everywhere by only adding jump points to the open list. Falls back to plain A*
+ * when the grid uses a non-uniform movement cost.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridJumpPointPathFinder extends GridBinaryHeapPathFinder
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private int[] directions; // pruned neighbor directions as (dx, dy) pairs
+	private int directionCount;
+	private int[] closedGenerations; // generation in which the node was last expanded
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the path finder.
+	 * @param heuristic The heuristic to use.
+	 * @param grid The grid on which to find the path.
+	 * @param allowDiagonal Whether to allow diagonal movement.
+	 */
+	public GridJumpPointPathFinder(IAStarHeuristic heuristic, Grid grid, boolean allowDiagonal)
+	{
+		super(heuristic, grid, allowDiagonal);
+
+		directions = new int[16];
+	}
+
+	/**
+	 * Makes sure the node store and the closed stamps match the size of the grid.
+	 */
+	@Override
+	protected void ensureNodes()
+	{
+		super.ensureNodes();
+
+		if (closedGenerations == null || closedGenerations.length != width * height)
+		{
+			closedGenerations = new int[width * height];
+		}
+	}
+
+	/**
+	 * Starts a new search.
+	 * The closed stamps are wiped together with the open stamps when the generation wraps.
+	 */
+	@Override
+	protected void nextGeneration()
+	{
+		super.nextGeneration();
+
+		// The generation restarts at one after a wrap.
+		if (generation == 1)
+		{
+			Arrays.fill(closedGenerations, 0);
+		}
+	}
+
+	/**
+	 * Returns the path from the starting coordinates to the target coordinates.
+	 * @param sx The starting x-coordinate.
+	 * @param sy The starting y-coordinate.
+	 * @param tx The target x-coordinate.
+	 * @param ty The target y-coordinate.
+	 * @param maxPathLength The maximum length allowed for the path.
+	 * @param mover The entity for which to get the path.
+	 * @return The path, or null if no path available.
+	 */
+	@Override
+	public GridPath getPath(int sx, int sy, int tx, int ty, int maxPathLength, IMover mover)
+	{
+		// Jump points are only valid when moving costs the same everywhere.
+		if (!grid.hasUniformMovementCost())
+		{
+			return super.getPath(sx, sy, tx, ty, maxPathLength, mover);
+		}
+
+		expandedNodes = 0;
+
+		// Make sure the destination is not blocked.
+		if (isBlocked(tx, ty, mover))
+		{
+			return null;
+		}
+
+		ensureNodes();
+		nextGeneration();
+
+		// Make sure that both ends are on the grid.
+		if (sx < 0 || sy < 0 || sx >= width || sy >= height || tx < 0 || ty < 0 || tx >= width || ty >= height)
+		{
+			return null;
+		}
+
+		int start = sy * width + sx;
+		int target = ty * width + tx;
+
+		// A path always requires at least one step.
+		if (start == target)
+		{
+			return null;
+		}
+
+		reach(start, -1, 0f, 0);
+		open.add(start, heuristic.getCost(sx, sy, tx, ty, mover), 0f);
+
+		while (!open.isEmpty())
+		{
+			int current = open.poll();
+
+			// We have reached the target.
+			if (current == target)
+			{
+				return createPath(start, target);
+			}
+
+			closedGenerations[current] = generation;
+			expandedNodes++;
+
+			int cx = current % width;
+			int cy = current / width;
+
+			findNeighbors(current, cx, cy, mover);
+
+			for (int i = 0; i < directionCount; i++)
+			{
+				int dx = directions[i * 2];
+				int dy = directions[i * 2 + 1];
+
+				int jumpPoint = jump(cx + dx, cy + dy, dx, dy, tx, ty, mover);
+
+				// Skip directions without jump points and jump points that are already expanded.
+				if (jumpPoint == -1 || closedGenerations[jumpPoint] == generation)
+				{
+					continue;
+				}
+
+				int jx = jumpPoint % width;
+				int jy = jumpPoint / width;
+				int distanceX = Math.abs(jx - cx);
+				int distanceY = Math.abs(jy - cy);
+
+				// Jumps are either straight or purely diagonal.
+				float distance = (distanceX != 0 && distanceY != 0) ? distanceX * DIAGONAL_COST : distanceX + distanceY;
+				int depth = depths[current] + Math.max(distanceX, distanceY);
+
+				// Do not jump beyond the maximum path length.
+				if (depth > maxPathLength)
+				{
+					continue;
+				}
+
+				float movementCost = movementCosts[current] + distance;
+
+				if (openGenerations[jumpPoint] == generation && movementCost >= movementCosts[jumpPoint])
+				{
+					continue;
+				}
+
+				reach(jumpPoint, current, movementCost, depth);
+
+				// Prefer the node furthest along the path when the estimates are equal.
+				open.add(jumpPoint, movementCost + heuristic.getCost(jx, jy, tx, ty, mover), -movementCost);
+			}
+		}
+
+		// No path available.
+		return null;
+	}
+
+	/**
+	 * Collects the directions worth searching from the given node.
+	 * Directions are pruned based on the direction we arrived from.
+	 * @param node The node index.
+	 * @param x The x-coordinate of the node.
+	 * @param y The y-coordinate of the node.
+	 * @param mover The mover.
+	 */
+	private void findNeighbors(int node, int x, int y, IMover mover)
+	{
+		directionCount = 0;
+
+		int parent = parents[node];
+
+		// The starting node has no parent, so we search in every direction.
+		if (parent == -1)
+		{
+			boolean left = isWalkable(x - 1, y, mover);
+			boolean right = isWalkable(x + 1, y, mover);
+			boolean up = isWalkable(x, y - 1, mover);
+			boolean down = isWalkable(x, y + 1, mover);
+
+			addDirection(left, -1, 0);
+			addDirection(right, 1, 0);
+			addDirection(up, 0, -1);
+			addDirection(down, 0, 1);
+
+			if (allowDiagonal)
+			{
+				addDirection(left && up && isWalkable(x - 1, y - 1, mover), -1, -1);
+				addDirection(right && up && isWalkable(x + 1, y - 1, mover), 1, -1);
+				addDirection(left && down && isWalkable(x - 1, y + 1, mover), -1, 1);
+				addDirection(right && down && isWalkable(x + 1, y + 1, mover), 1, 1);
+			}
+
+			return;
+		}
+
+		// Normalize the direction of travel.
+		int dx = Integer.signum(x - parent % width);
+		int dy = Integer.signum(y - parent / width);
+
+		if (!allowDiagonal)
+		{
+			if (dx != 0)
+			{
+				addDirection(isWalkable(x, y - 1, mover), 0, -1);
+				addDirection(isWalkable(x, y + 1, mover), 0, 1);
+				addDirection(isWalkable(x + dx, y, mover), dx, 0);
+			}
+			else
+			{
+				addDirection(isWalkable(x - 1, y, mover), -1, 0);
+				addDirection(isWalkable(x + 1, y, mover), 1, 0);
+				addDirection(isWalkable(x, y + dy, mover), 0, dy);
+			}
+		}
+		// Moving diagonally.
+		else if (dx != 0 && dy != 0)
+		{
+			boolean vertical = isWalkable(x, y + dy, mover);
+			boolean horizontal = isWalkable(x + dx, y, mover);
+
+			addDirection(vertical, 0, dy);
+			addDirection(horizontal, dx, 0);
+			addDirection(vertical && horizontal, dx, dy);
+		}
+		// Moving horizontally.
+		else if (dx != 0)
+		{
+			boolean next = isWalkable(x + dx, y, mover);
+			boolean down = isWalkable(x, y + 1, mover);
+			boolean up = isWalkable(x, y - 1, mover);
+
+			addDirection(next, dx, 0);
+			addDirection(next && down, dx, 1);
+			addDirection(next && up, dx, -1);
+			addDirection(down, 0, 1);
+			addDirection(up, 0, -1);
+		}
+		// Moving vertically.
+		else
+		{
+			boolean next = isWalkable(x, y + dy, mover);
+			boolean right = isWalkable(x + 1, y, mover);
+			boolean left = isWalkable(x - 1, y, mover);
+
+			addDirection(next, 0, dy);
+			addDirection(next && right, 1, dy);
+			addDirection(next && left, -1, dy);
+			addDirection(right, 1, 0);
+			addDirection(left, -1, 0);
+		}
+	}
+
+	/**
+	 * Adds a direction to search in if the condition holds.
+	 * @param condition Whether to add the direction.
+	 * @param dx The x-direction.
+	 * @param dy The y-direction.
+	 */
+	private void addDirection(boolean condition, int dx, int dy)
+	{
+		if (condition)
+		{
+			directions[directionCount * 2] = dx;
+			directions[directionCount * 2 + 1] = dy;
+			directionCount++;
+		}
+	}
+
+	/**
+	 * Walks from the given coordinates in the given direction until a jump point is found.
+	 * @param x The x-coordinate to start from.
+	 * @param y The y-coordinate to start from.
+	 * @param dx The x-direction.
+	 * @param dy The y-direction.
+	 * @param tx The target x-coordinate.
+	 * @param ty The target y-coordinate.
+	 * @param mover The mover.
+	 * @return The index of the jump point, or -1 if there is none.
+	 */
+	private int jump(int x, int y, int dx, int dy, int tx, int ty, IMover mover)
+	{
+		while (isWalkable(x, y, mover))
+		{
+			// The target is always a jump point.
+			if (x == tx && y == ty)
+			{
+				return y * width + x;
+			}
+
+			if (dx != 0 && dy != 0)
+			{
+				// Moving diagonally, stop if either straight direction leads to a jump point.
+				if (jump(x + dx, y, dx, 0, tx, ty, mover) != -1 || jump(x, y + dy, 0, dy, tx, ty, mover) != -1)
+				{
+					return y * width + x;
+				}
+
+				// Diagonal moves may not cut corners.
+				if (!isWalkable(x + dx, y, mover) || !isWalkable(x, y + dy, mover))
+				{
+					return -1;
+				}
+			}
+			else if (dx != 0)
+			{
+				// Moving horizontally, stop if we have a forced neighbor above or below.
+				if ((isWalkable(x, y - 1, mover) && !isWalkable(x - dx, y - 1, mover))
+						|| (isWalkable(x, y + 1, mover) && !isWalkable(x - dx, y + 1, mover)))
+				{
+					return y * width + x;
+				}
+			}
+			else
+			{
+				// Moving vertically, stop if we have a forced neighbor to the left or to the right.
+				if ((isWalkable(x - 1, y, mover) && !isWalkable(x - 1, y - dy, mover))
+						|| (isWalkable(x + 1, y, mover) && !isWalkable(x + 1, y - dy, mover)))
+				{
+					return y * width + x;
+				}
+
+				// Without diagonal moves, turning is only possible on jump points
+				// so we need to look for horizontal jump points as well.
+				if (!allowDiagonal
+						&& (jump(x + 1, y, 1, 0, tx, ty, mover) != -1 || jump(x - 1, y, -1, 0, tx, ty, mover) != -1))
+				{
+					return y * width + x;
+				}
+			}
+
+			x += dx;
+			y += dy;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns whether a specific cell can be walked on by the mover.
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @param mover The mover.
+	 * @return Whether the cell is walkable.
+	 */
+	private boolean isWalkable(int x, int y, IMover mover)
+	{
+		return !isBlocked(x, y, mover);
+	}
+
+	/**
+	 * Creates the path by filling in the cells in between the jump points.
+	 * @param start The start node index.
+	 * @param target The target node index.
+	 * @return The path.
+	 */
+	@Override
+	protected GridPath createPath(int start, int target)
+	{
+		int[] steps = new int[depths[target] + 1];
+		int index = steps.length;
+
+		steps[--index] = target;
+
+		// Walk the jump points back to the start and fill in the cells in between.
+		for (int node = target; node != start; node = parents[node])
+		{
+			int parent = parents[node];
+			int x = node % width;
+			int y = node / width;
+			int dx = Integer.signum(parent % width - x);
+			int dy = Integer.signum(parent / width - y);
+
+			do
+			{
+				x += dx;
+				y += dy;
+				steps[--index] = y * width + x;
+			}
+			while (y * width + x != parent);
+		}
+
+		GridPath path = new GridPath(grid);
+
+		for (int i = index; i < steps.length; i++)
+		{
+			path.appendStep(steps[i] % width, steps[i] / width);
+		}
+
+		return path;
+	}
+}
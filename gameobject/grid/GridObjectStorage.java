@@ -0,0 +1,116 @@
+package gridwhack.gameobject.grid;
+
+import gridwhack.gameobject.loot.Loot;
+import gridwhack.gameobject.tile.Tile;
+import gridwhack.gameobject.unit.Unit;
+
+/**
+ * Grid object storage class.
+ * Default storage that keeps a reference to the tile, loot and unit of each
+ * cell in flat arrays indexed by y * width + x.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridObjectStorage extends GridStorage
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private Tile[] tiles;
+	private Loot[] loots;
+	private Unit[] units;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the storage.
+	 * @param width The width of the grid in cells.
+	 * @param height The height of the grid in cells.
+	 */
+	public GridObjectStorage(int width, int height)
+	{
+		super(width, height);
+
+		tiles = new Tile[width * height];
+		loots = new Loot[width * height];
+		units = new Unit[width * height];
+	}
+
+	// ------------------
+	// Overridden methods
+	// ------------------
+
+	/**
+	 * Returns the tile in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The tile, or null if the cell has no tile.
+	 */
+	@Override
+	public Tile getTile(int gx, int gy)
+	{
+		return tiles[gy * width + gx];
+	}
+
+	/**
+	 * Places a tile in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param tile The tile, or null to clear the cell.
+	 */
+	@Override
+	public void setTile(int gx, int gy, Tile tile)
+	{
+		tiles[gy * width + gx] = tile;
+	}
+
+	/**
+	 * Returns the loot in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The loot, or null if the cell has no loot.
+	 */
+	@Override
+	public Loot getLoot(int gx, int gy)
+	{
+		return loots[gy * width + gx];
+	}
+
+	/**
+	 * Places loot in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param loot The loot, or null to clear the cell.
+	 */
+	@Override
+	public void setLoot(int gx, int gy, Loot loot)
+	{
+		loots[gy * width + gx] = loot;
+	}
+
+	/**
+	 * Returns the unit in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The unit, or null if the cell has no unit.
+	 */
+	@Override
+	public Unit getUnit(int gx, int gy)
+	{
+		return units[gy * width + gx];
+	}
+
+	/**
+	 * Places a unit in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param unit The unit, or null to clear the cell.
+	 */
+	@Override
+	public void setUnit(int gx, int gy, Unit unit)
+	{
+		units[gy * width + gx] = unit;
+	}
+}
@@ -44,6 +44,22 @@ public class GridPath extends Path
 	{
 		return currentIndex<(getLength() - 1);
 	}
+
+	/**
+	 * @return the x-coordinate of the cell this path leads to.
+	 */
+	public int getEndX()
+	{
+		return getX(getLength() - 1);
+	}
+
+	/**
+	 * @return the y-coordinate of the cell this path leads to.
+	 */
+	public int getEndY()
+	{
+		return getY(getLength() - 1);
+	}
 	
 	/**
 	 * Draws this path (used for debug purposes).
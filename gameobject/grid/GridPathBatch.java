@@ -0,0 +1,195 @@
+package gridwhack.gameobject.grid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gridwhack.core.WorkerPool;
+
+/**
+ * Grid path batch class file.
+ * Finds many paths at once on the worker pool. Requests the path cache of the grid can
+ * answer are answered when the batch is submitted, the rest are searched on a snapshot
+ * of the grid so that the grid can keep changing while the batch is running, and
+ * stored in the requests and the cache once the batch is joined.
+ * The searches always use binary heap A*, whichever path finder the grid has selected,
+ * because the other finders keep state about the grid itself that cannot be shared
+ * between worker threads.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridPathBatch
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private static final int TASKS_PER_WORKER = 4; // split finer than the worker count to even out the load
+
+	private Grid grid;
+	private GridSnapshot snapshot;
+	private ArrayList<GridPathRequest> requests;
+	private ArrayList<GridPathRequest> searches; // requests the cache could not answer
+	private AtomicLong expandedNodes;
+	private ForkJoinTask<Void> task;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the batch.
+	 * @param grid the grid the paths exist on.
+	 * @param snapshot the snapshot of the grid to search.
+	 * @param requests the requests to find paths for.
+	 */
+	public GridPathBatch(Grid grid, GridSnapshot snapshot, List<GridPathRequest> requests)
+	{
+		this.grid = grid;
+		this.snapshot = snapshot;
+		this.requests = new ArrayList<GridPathRequest>(requests);
+
+		expandedNodes = new AtomicLong(0L);
+	}
+
+	/**
+	 * Starts finding the paths on the worker pool.
+	 */
+	public void submit()
+	{
+		GridPathCache cache = grid.getPathCache();
+		searches = new ArrayList<GridPathRequest>();
+
+		for (GridPathRequest request : requests)
+		{
+			if (!request.isCancelled() && !cache.lookup(request))
+			{
+				searches.add(request);
+			}
+		}
+
+		WorkerPool workers = WorkerPool.getInstance();
+		int threshold = Math.max(1, searches.size() / (workers.getParallelism() * TASKS_PER_WORKER));
+
+		task = workers.getPool().submit(new SearchTask(0, searches.size(), threshold));
+	}
+
+	/**
+	 * Waits until all paths have been found.
+	 */
+	public void join()
+	{
+		if (task != null)
+		{
+			task.join();
+		}
+	}
+
+	/**
+	 * Finds the paths for a range of requests on the current thread.
+	 * @param from the index of the first request.
+	 * @param to the index past the last request.
+	 */
+	private void search(int from, int to)
+	{
+		GridSnapshotPathFinder pf = grid.getSnapshotPathFinder();
+		pf.setSnapshot(snapshot);
+
+		GridPathCache cache = grid.getPathCache();
+
+		long expanded = 0L;
+
+		for (int i = from; i < to; i++)
+		{
+			GridPathRequest request = searches.get(i);
+
+			if (!request.isCancelled())
+			{
+				request.setPath(pf.getPath(request.getStartX(), request.getStartY(), request.getTargetX(),
+						request.getTargetY(), request.getMaxPathLength(), request.getMover()));
+				cache.store(request, snapshot.getPassabilityVersion());
+
+				expanded += pf.getExpandedNodes();
+			}
+		}
+
+		expandedNodes.addAndGet(expanded);
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return whether all paths have been found.
+	 */
+	public boolean isDone()
+	{
+		return task != null && task.isDone();
+	}
+
+	/**
+	 * @return the requests in this batch.
+	 */
+	public ArrayList<GridPathRequest> getRequests()
+	{
+		return requests;
+	}
+
+	/**
+	 * @return the snapshot the paths are searched on.
+	 */
+	public GridSnapshot getSnapshot()
+	{
+		return snapshot;
+	}
+
+	/**
+	 * @return the number of nodes expanded so far.
+	 */
+	public long getExpandedNodes()
+	{
+		return expandedNodes.get();
+	}
+
+	/**
+	 * Private inner class that splits a range of requests until it is small enough to search.
+	 */
+	private class SearchTask extends RecursiveAction
+	{
+		private int from;
+		private int to;
+		private int threshold;
+
+		/**
+		 * Creates the task.
+		 * @param from the index of the first request.
+		 * @param to the index past the last request.
+		 * @param threshold the number of requests to search without splitting.
+		 */
+		public SearchTask(int from, int to, int threshold)
+		{
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		/**
+		 * Searches the range or splits it in two.
+		 */
+		@Override
+		protected void compute()
+		{
+			if (to - from <= threshold)
+			{
+				search(from, to);
+			}
+			else
+			{
+				int middle = (from + to) >>> 1;
+				invokeAll(new SearchTask(from, middle, threshold), new SearchTask(middle, to, threshold));
+			}
+		}
+	}
+}
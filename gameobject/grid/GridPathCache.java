@@ -0,0 +1,491 @@
+package gridwhack.gameobject.grid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import gridwhack.gameobject.character.player.Player;
+import gridwhack.path.IMover;
+
+/**
+ * Grid path cache class file.
+ * Remembers the most recently used paths on a grid so that movers asking for the same
+ * path, or for a path that is part of an earlier one, do not have to search for it again.
+ * The cache is emptied whenever the passability of the grid changes. Paths are shared
+ * between movers that see the same passability: tiles block all movers but the player
+ * alike, so the player's paths are kept apart from the paths of everyone else.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridPathCache
+{
+	// ----------
+	// Properties
+	// ----------
+
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private Grid grid;
+	private int capacity;
+	private int version; // passability version of the grid the cached paths were found on
+	private LinkedHashMap<Long, CachedPath> paths;
+	private HashMap<Integer, ArrayList<CachedPath>> pathsByTarget;
+
+	private long hits;
+	private long suffixHits;
+	private long misses;
+	private long evictions;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the cache.
+	 * @param grid the grid the paths exist on.
+	 * @param capacity the maximum number of paths to remember.
+	 */
+	public GridPathCache(Grid grid, int capacity)
+	{
+		this.grid = grid;
+		this.capacity = capacity;
+
+		pathsByTarget = new HashMap<Integer, ArrayList<CachedPath>>();
+
+		// Iterate in access order so that the least recently used path is evicted first.
+		paths = new LinkedHashMap<Long, CachedPath>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, CachedPath> eldest)
+			{
+				if (size() > GridPathCache.this.capacity)
+				{
+					unindex(eldest.getValue());
+					evictions++;
+					return true;
+				}
+
+				return false;
+			}
+		};
+
+		version = grid.getPassabilityVersion();
+	}
+
+	/**
+	 * Returns the path from the starting coordinates to the target coordinates,
+	 * using a cached path when possible and the given path finder otherwise.
+	 * @param pf the path finder to use on a miss.
+	 * @param sx the starting x-coordinate.
+	 * @param sy the starting y-coordinate.
+	 * @param tx the target x-coordinate.
+	 * @param ty the target y-coordinate.
+	 * @param maxPathLength the maximum length allowed for the path.
+	 * @param mover the entity for which to get the path.
+	 * @return a new path, or null if no path available.
+	 */
+	public synchronized GridPath getPath(GridPathFinder pf, int sx, int sy, int tx, int ty, int maxPathLength, IMover mover)
+	{
+		// Caching is disabled.
+		if (capacity <= 0)
+		{
+			misses++;
+			return pf.getPath(sx, sy, tx, ty, maxPathLength, mover);
+		}
+
+		validate();
+
+		int width = grid.getWidthInCells();
+		int start = sy * width + sx;
+		int target = createTarget(ty * width + tx, mover);
+		Long key = createKey(start, target);
+
+		CachedPath cached = paths.get(key);
+
+		if (cached != null)
+		{
+			if (fits(cached, maxPathLength))
+			{
+				hits++;
+				return createPath(cached, 0);
+			}
+		}
+		else
+		{
+			GridPath suffix = getSuffix(start, target, maxPathLength);
+
+			if (suffix != null)
+			{
+				suffixHits++;
+				return suffix;
+			}
+		}
+
+		misses++;
+
+		GridPath path = pf.getPath(sx, sy, tx, ty, maxPathLength, mover);
+
+		// Paths that are refined as they are walked have no cells to remember yet.
+		if (path instanceof GridHierarchicalPath)
+		{
+			return path;
+		}
+
+		put(key, start, target, path, maxPathLength);
+
+		return path != null ? createPath(paths.get(key), 0) : null;
+	}
+
+	/**
+	 * Answers a batched request from the cache without searching.
+	 * @param request the request.
+	 * @return whether the request was answered, the path is set on the request if so.
+	 */
+	public synchronized boolean lookup(GridPathRequest request)
+	{
+		// Caching is disabled.
+		if (capacity <= 0)
+		{
+			misses++;
+			return false;
+		}
+
+		validate();
+
+		int width = grid.getWidthInCells();
+		int start = request.getStartY() * width + request.getStartX();
+		int target = createTarget(request.getTargetY() * width + request.getTargetX(), request.getMover());
+
+		CachedPath cached = paths.get(createKey(start, target));
+
+		if (cached != null)
+		{
+			if (fits(cached, request.getMaxPathLength()))
+			{
+				hits++;
+				request.setPath(createPath(cached, 0));
+				return true;
+			}
+		}
+		else
+		{
+			GridPath suffix = getSuffix(start, target, request.getMaxPathLength());
+
+			if (suffix != null)
+			{
+				suffixHits++;
+				request.setPath(suffix);
+				return true;
+			}
+		}
+
+		misses++;
+
+		return false;
+	}
+
+	/**
+	 * Remembers the path found for a batched request on a snapshot.
+	 * Paths found on a snapshot taken before the grid last changed are not remembered.
+	 * @param request the request.
+	 * @param passabilityVersion the passability version of the snapshot the path was found on.
+	 */
+	public synchronized void store(GridPathRequest request, int passabilityVersion)
+	{
+		if (capacity <= 0)
+		{
+			return;
+		}
+
+		validate();
+
+		if (passabilityVersion != version)
+		{
+			return;
+		}
+
+		int width = grid.getWidthInCells();
+		int start = request.getStartY() * width + request.getStartX();
+		int target = createTarget(request.getTargetY() * width + request.getTargetX(), request.getMover());
+
+		put(createKey(start, target), start, target, request.getPath(), request.getMaxPathLength());
+	}
+
+	/**
+	 * Empties the cache if the passability of the grid has changed since the paths were found.
+	 * Paths found before the grid changed might run through blocked cells.
+	 */
+	private void validate()
+	{
+		if (version != grid.getPassabilityVersion())
+		{
+			clear();
+			version = grid.getPassabilityVersion();
+		}
+	}
+
+	/**
+	 * Returns whether a cached search result answers a request of a specific length.
+	 * A path is good for any length it fits in, a missing path for any length up to the one searched.
+	 * @param cached the cached search result.
+	 * @param maxPathLength the maximum length allowed for the path.
+	 * @return whether the result can be used.
+	 */
+	private boolean fits(CachedPath cached, int maxPathLength)
+	{
+		return cached.cells != null ? cached.cells.length - 1 <= maxPathLength : maxPathLength <= cached.maxPathLength;
+	}
+
+	/**
+	 * Returns the remainder of a cached path to the target that passes through the start.
+	 * @param start the start cell index.
+	 * @param target the target, see createTarget.
+	 * @param maxPathLength the maximum length allowed for the path.
+	 * @return a new path, or null if no cached path passes through the start.
+	 */
+	private GridPath getSuffix(int start, int target, int maxPathLength)
+	{
+		ArrayList<CachedPath> candidates = pathsByTarget.get(target);
+
+		if (candidates == null)
+		{
+			return null;
+		}
+
+		for (CachedPath candidate : candidates)
+		{
+			int[] cells = candidate.cells;
+
+			// The part of a shortest path from any of its cells is a shortest path as well.
+			for (int i = 1, length = cells.length - 1; i < length; i++)
+			{
+				if (cells[i] == start)
+				{
+					if (length - i <= maxPathLength)
+					{
+						paths.get(createKey(candidate.start, target)); // mark as recently used
+						return createPath(candidate, i);
+					}
+
+					break;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Remembers the result of a search.
+	 * @param key the key.
+	 * @param start the start cell index.
+	 * @param target the target, see createTarget.
+	 * @param path the path, or null if no path was found.
+	 * @param maxPathLength the maximum length the search was allowed to use.
+	 */
+	private void put(Long key, int start, int target, GridPath path, int maxPathLength)
+	{
+		CachedPath cached = new CachedPath();
+		cached.start = start;
+		cached.target = target;
+		cached.maxPathLength = maxPathLength;
+
+		if (path != null)
+		{
+			int width = grid.getWidthInCells();
+			cached.cells = new int[path.getLength()];
+
+			for (int i = 0; i < cached.cells.length; i++)
+			{
+				cached.cells[i] = path.getY(i) * width + path.getX(i);
+			}
+		}
+
+		CachedPath previous = paths.put(key, cached);
+
+		if (previous != null)
+		{
+			unindex(previous);
+		}
+
+		// Only paths that exist can be reused from the middle.
+		if (cached.cells != null)
+		{
+			ArrayList<CachedPath> candidates = pathsByTarget.get(target);
+
+			if (candidates == null)
+			{
+				candidates = new ArrayList<CachedPath>();
+				pathsByTarget.put(target, candidates);
+			}
+
+			candidates.add(cached);
+		}
+	}
+
+	/**
+	 * Removes a cached path from the target index.
+	 * @param cached the cached path.
+	 */
+	private void unindex(CachedPath cached)
+	{
+		ArrayList<CachedPath> candidates = pathsByTarget.get(cached.target);
+
+		if (candidates != null)
+		{
+			candidates.remove(cached);
+
+			if (candidates.isEmpty())
+			{
+				pathsByTarget.remove(cached.target);
+			}
+		}
+	}
+
+	/**
+	 * Creates a new path from a cached path.
+	 * Paths keep track of how far they have been walked so they are never shared.
+	 * @param cached the cached path.
+	 * @param from the index of the cell to start from.
+	 * @return the path.
+	 */
+	private GridPath createPath(CachedPath cached, int from)
+	{
+		if (cached.cells == null)
+		{
+			return null;
+		}
+
+		int width = grid.getWidthInCells();
+		GridPath path = new GridPath(grid);
+
+		for (int i = from; i < cached.cells.length; i++)
+		{
+			path.appendStep(cached.cells[i] % width, cached.cells[i] / width);
+		}
+
+		return path;
+	}
+
+	/**
+	 * Creates the target of a search, the target cell index tagged with the passability the mover sees.
+	 * Searches for the player and for other movers never share a target, so neither can reuse
+	 * the other's paths, whole or in part.
+	 * @param target the target cell index.
+	 * @param mover the mover.
+	 * @return the target.
+	 */
+	private int createTarget(int target, IMover mover)
+	{
+		return (target << 1) | (mover instanceof Player ? 1 : 0);
+	}
+
+	/**
+	 * Creates the key for a start cell and a target.
+	 * @param start the start cell index.
+	 * @param target the target, see createTarget.
+	 * @return the key.
+	 */
+	private Long createKey(int start, int target)
+	{
+		return Long.valueOf(((long) start << 32) | (target & 0xffffffffL));
+	}
+
+	/**
+	 * Removes all paths from this cache.
+	 */
+	public synchronized void clear()
+	{
+		paths.clear();
+		pathsByTarget.clear();
+	}
+
+	/**
+	 * Resets the hit, miss and eviction counters.
+	 */
+	public synchronized void resetCounters()
+	{
+		hits = 0;
+		suffixHits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return the number of requests answered with a cached path.
+	 */
+	public long getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return the number of requests answered with the remainder of a cached path.
+	 */
+	public long getSuffixHits()
+	{
+		return suffixHits;
+	}
+
+	/**
+	 * @return the number of requests that required a search.
+	 */
+	public long getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * @return the number of paths dropped to make room for new ones.
+	 */
+	public long getEvictions()
+	{
+		return evictions;
+	}
+
+	/**
+	 * @return the number of cached paths.
+	 */
+	public synchronized int getSize()
+	{
+		return paths.size();
+	}
+
+	/**
+	 * @return the maximum number of cached paths.
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Sets the maximum number of cached paths, zero disables the cache.
+	 * @param capacity the capacity.
+	 */
+	public synchronized void setCapacity(int capacity)
+	{
+		this.capacity = capacity;
+
+		// Start over rather than evicting the surplus one by one.
+		if (paths.size() > capacity)
+		{
+			clear();
+		}
+	}
+
+	/**
+	 * Private inner class representing a single cached search result.
+	 */
+	private class CachedPath
+	{
+		private int start;
+		private int target; // the target cell index tagged with the passability of the mover
+		private int maxPathLength;
+		private int[] cells; // cell indices of the path, or null if no path was found
+	}
+}
@@ -0,0 +1,90 @@
+package gridwhack.gameobject.grid;
+
+import gridwhack.path.IAStarHeuristic;
+import gridwhack.path.IMover;
+import gridwhack.path.IPathFinder;
+
+/**
+ * Grid path finder class.
+ * All path finders that operate on a grid must be extended from this class.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public abstract class GridPathFinder implements IPathFinder
+{
+	public static enum PathFinderType {
+		A_STAR,
+		BINARY_HEAP_A_STAR,
+		JUMP_POINT,
+		JUMP_POINT_DIAGONAL,
+		HIERARCHICAL,
+		D_STAR_LITE,
+	};
+
+	// ----------
+	// Properties
+	// ----------
+
+	protected IAStarHeuristic heuristic;
+	protected Grid grid;
+	protected int expandedNodes; // number of nodes expanded during the last search
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the path finder.
+	 * @param heuristic The heuristic to use.
+	 * @param grid The grid on which to find the path.
+	 */
+	public GridPathFinder(IAStarHeuristic heuristic, Grid grid)
+	{
+		this.heuristic = heuristic;
+		this.grid = grid;
+	}
+
+	// ----------------
+	// Abstract methods
+	// ----------------
+
+	/**
+	 * Returns the path from the starting coordinates to the target coordinates.
+	 * @param sx The starting x-coordinate.
+	 * @param sy The starting y-coordinate.
+	 * @param tx The target x-coordinate.
+	 * @param ty The target y-coordinate.
+	 * @param maxPathLength The maximum length allowed for the path.
+	 * @param mover The entity for which to get the path.
+	 * @return The path, or null if no path available.
+	 */
+	public abstract GridPath getPath(int sx, int sy, int tx, int ty, int maxPathLength, IMover mover);
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * Returns the number of nodes expanded during the last search.
+	 * @return The node count.
+	 */
+	public int getExpandedNodes()
+	{
+		return expandedNodes;
+	}
+
+	/**
+	 * @return The heuristic used by this path finder.
+	 */
+	public IAStarHeuristic getHeuristic()
+	{
+		return heuristic;
+	}
+
+	/**
+	 * @return The grid this path finder operates on.
+	 */
+	public Grid getGrid()
+	{
+		return grid;
+	}
+}
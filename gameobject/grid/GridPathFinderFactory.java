@@ -0,0 +1,85 @@
+package gridwhack.gameobject.grid;
+
+import gridwhack.base.BaseObject;
+import gridwhack.exception.InvalidObjectException;
+import gridwhack.gameobject.grid.GridPathFinder.PathFinderType;
+import gridwhack.path.IAStarHeuristic;
+
+/**
+ * Grid path finder factory class.
+ * Allows for creating path finders for grids.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridPathFinderFactory extends BaseObject
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private static final GridPathFinderFactory instance = new GridPathFinderFactory();
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the factory.
+	 * Private to enforce the singleton pattern.
+	 */
+	private GridPathFinderFactory() {}
+
+	/**
+	 * Returns the single instance of this object.
+	 * @return The instance.
+	 */
+	public static GridPathFinderFactory getInstance()
+	{
+		return instance;
+	}
+
+	/**
+	 * Creates a path finder of the given type.
+	 * @param type The path finder type.
+	 * @param heuristic The heuristic to use.
+	 * @param grid The grid on which to find paths.
+	 * @return The path finder.
+	 * @throws InvalidObjectException If the path finder could not be created.
+	 */
+	public GridPathFinder create(PathFinderType type, IAStarHeuristic heuristic, Grid grid) throws InvalidObjectException
+	{
+		GridPathFinder object;
+
+		// return the requested type of path finder.
+		switch (type)
+		{
+			case A_STAR:
+				object = new GridAStarPathFinder(heuristic, grid);
+				break;
+
+			case BINARY_HEAP_A_STAR:
+				object = new GridBinaryHeapPathFinder(heuristic, grid);
+				break;
+
+			case JUMP_POINT:
+				object = new GridJumpPointPathFinder(heuristic, grid, false);
+				break;
+
+			case JUMP_POINT_DIAGONAL:
+				object = new GridJumpPointPathFinder(heuristic, grid, true);
+				break;
+
+			case HIERARCHICAL:
+				object = new GridHierarchicalPathFinder(heuristic, grid);
+				break;
+
+			case D_STAR_LITE:
+				object = new GridDStarLitePathFinder(heuristic, grid);
+				break;
+
+			default:
+				throw new InvalidObjectException("Invalid object type.");
+		}
+
+		return object;
+	}
+}
@@ -0,0 +1,153 @@
+package gridwhack.gameobject.grid;
+
+import gridwhack.path.IMover;
+
+/**
+ * Grid path request class file.
+ * A single path waiting to be found by the grid path scheduler.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridPathRequest
+{
+	private IGridPathRequester requester;
+	private IMover mover;
+	private int startX;
+	private int startY;
+	private int targetX;
+	private int targetY;
+	private int maxPathLength;
+	private long requestTime; // in nanoseconds
+	private long requestTick;
+	private GridPath path;
+	private boolean cancelled;
+
+	/**
+	 * Creates the request.
+	 * @param requester the object to deliver the path to.
+	 * @param mover the mover to find the path for.
+	 * @param sgx the starting grid x-coordinate.
+	 * @param sgy the starting grid y-coordinate.
+	 * @param tgx the target grid x-coordinate.
+	 * @param tgy the target grid y-coordinate.
+	 * @param maxPathLength the maximum allowed path length.
+	 * @param requestTick the tick on which the path was requested.
+	 */
+	public GridPathRequest(IGridPathRequester requester, IMover mover, int sgx, int sgy, int tgx, int tgy, int maxPathLength, long requestTick)
+	{
+		this.requester = requester;
+		this.mover = mover;
+		this.startX = sgx;
+		this.startY = sgy;
+		this.targetX = tgx;
+		this.targetY = tgy;
+		this.maxPathLength = maxPathLength;
+		this.requestTick = requestTick;
+
+		requestTime = System.nanoTime();
+		cancelled = false;
+	}
+
+	/**
+	 * Cancels this request, cancelled requests are neither searched nor delivered.
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	/**
+	 * @return the object to deliver the path to.
+	 */
+	public IGridPathRequester getRequester()
+	{
+		return requester;
+	}
+
+	/**
+	 * @return the mover to find the path for.
+	 */
+	public IMover getMover()
+	{
+		return mover;
+	}
+
+	/**
+	 * @return the starting grid x-coordinate.
+	 */
+	public int getStartX()
+	{
+		return startX;
+	}
+
+	/**
+	 * @return the starting grid y-coordinate.
+	 */
+	public int getStartY()
+	{
+		return startY;
+	}
+
+	/**
+	 * @return the target grid x-coordinate.
+	 */
+	public int getTargetX()
+	{
+		return targetX;
+	}
+
+	/**
+	 * @return the target grid y-coordinate.
+	 */
+	public int getTargetY()
+	{
+		return targetY;
+	}
+
+	/**
+	 * @return the maximum allowed path length.
+	 */
+	public int getMaxPathLength()
+	{
+		return maxPathLength;
+	}
+
+	/**
+	 * @return the time when the path was requested in nanoseconds.
+	 */
+	public long getRequestTime()
+	{
+		return requestTime;
+	}
+
+	/**
+	 * @return the tick on which the path was requested.
+	 */
+	public long getRequestTick()
+	{
+		return requestTick;
+	}
+
+	/**
+	 * @return the path, or null if it has not been found or is not available.
+	 */
+	public GridPath getPath()
+	{
+		return path;
+	}
+
+	/**
+	 * @param path the path that was found.
+	 */
+	public void setPath(GridPath path)
+	{
+		this.path = path;
+	}
+
+	/**
+	 * @return whether this request has been cancelled.
+	 */
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+}
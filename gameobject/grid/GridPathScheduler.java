@@ -0,0 +1,414 @@
+package gridwhack.gameobject.grid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import gridwhack.path.IMover;
+
+/**
+ * Grid path scheduler class file.
+ * Queues path requests and finds them at the end of each tick until the time or
+ * expansion budget of the tick runs out, so that many characters asking for paths
+ * at once spread the work over several ticks. Found paths are delivered at the
+ * beginning of the next tick. In parallel mode all queued requests are instead
+ * searched as a single batch on the worker pool while the frame is drawn, and the
+ * batch is joined at the beginning of the next tick.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridPathScheduler
+{
+	// ----------
+	// Properties
+	// ----------
+
+	public static final long DEFAULT_TIME_BUDGET = 2000000L; // 2 ms
+	public static final int DEFAULT_EXPANSION_BUDGET = 0; // unlimited
+
+	private Grid grid;
+	private long timeBudget; // in nanoseconds, zero for unlimited
+	private int expansionBudget; // zero for unlimited
+	private long tick;
+	private boolean parallel;
+	private GridPathBatch batch; // the batch running in parallel mode
+
+	private LinkedList<GridPathRequest> queue;
+	private ArrayList<GridPathRequest> completed;
+	private HashMap<IGridPathRequester, GridPathRequest> pending; // the latest request of each requester
+
+	private int lastQueueDepth;
+	private int maxQueueDepth;
+	private int lastExpansions;
+	private int maxExpansions;
+	private long totalExpansions;
+	private int lastServed;
+	private long totalServed;
+	private long totalWaitTime; // in nanoseconds
+	private long maxWaitTime; // in nanoseconds
+	private long totalWaitTicks;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the scheduler.
+	 * @param grid the grid to find the paths on.
+	 */
+	public GridPathScheduler(Grid grid)
+	{
+		this.grid = grid;
+
+		timeBudget = DEFAULT_TIME_BUDGET;
+		expansionBudget = DEFAULT_EXPANSION_BUDGET;
+		tick = 0;
+		parallel = false;
+
+		queue = new LinkedList<GridPathRequest>();
+		completed = new ArrayList<GridPathRequest>();
+		pending = new HashMap<IGridPathRequester, GridPathRequest>();
+	}
+
+	/**
+	 * Queues a path request, replacing any earlier request of the same requester.
+	 * @param requester the object to deliver the path to.
+	 * @param mover the mover to find the path for.
+	 * @param sgx the starting grid x-coordinate.
+	 * @param sgy the starting grid y-coordinate.
+	 * @param tgx the target grid x-coordinate.
+	 * @param tgy the target grid y-coordinate.
+	 * @param maxPathLength the maximum allowed path length.
+	 * @return the request.
+	 */
+	public synchronized GridPathRequest request(IGridPathRequester requester, IMover mover, int sgx, int sgy, int tgx, int tgy, int maxPathLength)
+	{
+		cancel(requester);
+
+		GridPathRequest request = new GridPathRequest(requester, mover, sgx, sgy, tgx, tgy, maxPathLength, tick);
+		queue.add(request);
+		pending.put(requester, request);
+
+		return request;
+	}
+
+	/**
+	 * Cancels the request of a specific requester.
+	 * @param requester the requester.
+	 */
+	public synchronized void cancel(IGridPathRequester requester)
+	{
+		GridPathRequest request = pending.remove(requester);
+
+		if (request != null)
+		{
+			request.cancel();
+		}
+	}
+
+	/**
+	 * Delivers the paths found during the previous tick.
+	 */
+	public void deliver()
+	{
+		ArrayList<GridPathRequest> requests;
+
+		synchronized (this)
+		{
+			joinBatch();
+
+			requests = completed;
+			completed = new ArrayList<GridPathRequest>();
+		}
+
+		long now = System.nanoTime();
+
+		for (GridPathRequest request : requests)
+		{
+			synchronized (this)
+			{
+				// The requester has asked for another path in the meantime.
+				if (request.isCancelled())
+				{
+					continue;
+				}
+
+				pending.remove(request.getRequester());
+
+				long waitTime = now - request.getRequestTime();
+				totalWaitTime += waitTime;
+				totalWaitTicks += tick - request.getRequestTick();
+				maxWaitTime = Math.max(maxWaitTime, waitTime);
+				totalServed++;
+			}
+
+			// Deliver outside the lock, requesters often ask for a new path right away.
+			request.getRequester().onPathReady(request);
+		}
+	}
+
+	/**
+	 * Finds queued paths until the budget of this tick runs out.
+	 * At least one path is found every tick so that the queue never stalls.
+	 */
+	public synchronized void process()
+	{
+		if (parallel)
+		{
+			submitBatch();
+			return;
+		}
+
+		long startTime = System.nanoTime();
+		GridPathCache cache = grid.getPathCache();
+		int expansions = 0;
+		int served = 0;
+
+		while (!queue.isEmpty())
+		{
+			// Make sure we stay within the budget.
+			if (served > 0
+					&& ((timeBudget > 0 && System.nanoTime() - startTime >= timeBudget)
+					|| (expansionBudget > 0 && expansions >= expansionBudget)))
+			{
+				break;
+			}
+
+			GridPathRequest request = queue.poll();
+
+			if (request.isCancelled())
+			{
+				continue;
+			}
+
+			long misses = cache.getMisses();
+
+			request.setPath(grid.getPath(request.getStartX(), request.getStartY(), request.getTargetX(),
+					request.getTargetY(), request.getMaxPathLength(), request.getMover()));
+
+			// Only searches count towards the budget, cached paths are free.
+			if (cache.getMisses() != misses)
+			{
+				expansions += grid.getPathFinder().getExpandedNodes();
+			}
+
+			completed.add(request);
+			served++;
+		}
+
+		lastQueueDepth = queue.size();
+		lastServed = served;
+		maxQueueDepth = Math.max(maxQueueDepth, lastQueueDepth);
+		recordExpansions(expansions);
+
+		tick++;
+	}
+
+	/**
+	 * Starts searching all queued requests on the worker pool.
+	 */
+	private void submitBatch()
+	{
+		ArrayList<GridPathRequest> requests = new ArrayList<GridPathRequest>();
+
+		while (!queue.isEmpty())
+		{
+			GridPathRequest request = queue.poll();
+
+			if (!request.isCancelled())
+			{
+				requests.add(request);
+			}
+		}
+
+		if (!requests.isEmpty())
+		{
+			batch = grid.submitPaths(requests);
+		}
+
+		lastQueueDepth = 0;
+		lastServed = requests.size();
+
+		tick++;
+	}
+
+	/**
+	 * Waits for the running batch and marks its requests completed.
+	 */
+	private void joinBatch()
+	{
+		if (batch != null)
+		{
+			batch.join();
+			completed.addAll(batch.getRequests());
+			recordExpansions((int) batch.getExpandedNodes());
+			batch = null;
+		}
+	}
+
+	/**
+	 * Records the number of nodes expanded during a tick.
+	 * @param expansions the number of expanded nodes.
+	 */
+	private void recordExpansions(int expansions)
+	{
+		lastExpansions = expansions;
+		maxExpansions = Math.max(maxExpansions, expansions);
+		totalExpansions += expansions;
+	}
+
+	/**
+	 * Resets the metrics.
+	 */
+	public synchronized void resetMetrics()
+	{
+		maxQueueDepth = 0;
+		maxExpansions = 0;
+		totalExpansions = 0;
+		totalServed = 0;
+		totalWaitTime = 0;
+		maxWaitTime = 0;
+		totalWaitTicks = 0;
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return the number of requests waiting to be searched.
+	 */
+	public synchronized int getQueueDepth()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * @return the number of requests left waiting at the end of the last tick.
+	 */
+	public int getLastQueueDepth()
+	{
+		return lastQueueDepth;
+	}
+
+	/**
+	 * @return the highest number of requests left waiting at the end of a tick.
+	 */
+	public int getMaxQueueDepth()
+	{
+		return maxQueueDepth;
+	}
+
+	/**
+	 * @return the number of nodes expanded during the last tick.
+	 */
+	public int getLastExpansions()
+	{
+		return lastExpansions;
+	}
+
+	/**
+	 * @return the highest number of nodes expanded during a single tick.
+	 */
+	public int getMaxExpansions()
+	{
+		return maxExpansions;
+	}
+
+	/**
+	 * @return the average number of nodes expanded per tick.
+	 */
+	public double getAverageExpansions()
+	{
+		return tick > 0 ? (double) totalExpansions / tick : 0.0;
+	}
+
+	/**
+	 * @return the number of requests searched during the last tick.
+	 */
+	public int getLastServed()
+	{
+		return lastServed;
+	}
+
+	/**
+	 * @return the number of paths delivered.
+	 */
+	public long getTotalServed()
+	{
+		return totalServed;
+	}
+
+	/**
+	 * @return the average time between requesting and receiving a path in nanoseconds.
+	 */
+	public long getAverageWaitTime()
+	{
+		return totalServed > 0 ? totalWaitTime / totalServed : 0L;
+	}
+
+	/**
+	 * @return the longest time between requesting and receiving a path in nanoseconds.
+	 */
+	public long getMaxWaitTime()
+	{
+		return maxWaitTime;
+	}
+
+	/**
+	 * @return the average number of ticks between requesting and receiving a path.
+	 */
+	public double getAverageWaitTicks()
+	{
+		return totalServed > 0 ? (double) totalWaitTicks / totalServed : 0.0;
+	}
+
+	/**
+	 * @return whether the requests are searched in parallel on the worker pool.
+	 */
+	public boolean isParallel()
+	{
+		return parallel;
+	}
+
+	/**
+	 * Sets whether to search the requests in parallel on the worker pool.
+	 * The budgets do not apply in parallel mode as the searches do not run on the game thread.
+	 * @param parallel whether to search in parallel.
+	 */
+	public synchronized void setParallel(boolean parallel)
+	{
+		this.parallel = parallel;
+	}
+
+	/**
+	 * @return the time budget per tick in nanoseconds.
+	 */
+	public long getTimeBudget()
+	{
+		return timeBudget;
+	}
+
+	/**
+	 * @param timeBudget the time budget per tick in nanoseconds, zero for unlimited.
+	 */
+	public void setTimeBudget(long timeBudget)
+	{
+		this.timeBudget = timeBudget;
+	}
+
+	/**
+	 * @return the node expansion budget per tick.
+	 */
+	public int getExpansionBudget()
+	{
+		return expansionBudget;
+	}
+
+	/**
+	 * @param expansionBudget the node expansion budget per tick, zero for unlimited.
+	 */
+	public void setExpansionBudget(int expansionBudget)
+	{
+		this.expansionBudget = expansionBudget;
+	}
+}
@@ -0,0 +1,150 @@
+package gridwhack.gameobject.grid;
+
+import gridwhack.gameobject.character.player.Player;
+import gridwhack.path.IMover;
+import gridwhack.util.BitMatrix;
+
+/**
+ * Grid snapshot class file.
+ * Immutable copy of the passability, opacity and movement costs of a grid that can be
+ * read from any thread while the grid itself keeps changing.
+ * Tiles hide from every viewer alike and block every mover but the player alike, so the
+ * snapshot keeps the passability as seen by the player next to that of the other movers.
+ * Movement costs are taken without a mover.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridSnapshot
+{
+	private final int width;
+	private final int height;
+	private final int passabilityVersion;
+	private final int opacityVersion;
+	private final BitMatrix blocked;
+	private final BitMatrix playerBlocked;
+	private final BitMatrix solid;
+	private final float[] movementCosts; // null when moving costs the same everywhere
+
+	/**
+	 * Creates the snapshot.
+	 * @param grid the grid to copy.
+	 */
+	public GridSnapshot(Grid grid)
+	{
+		width = grid.getWidthInCells();
+		height = grid.getHeightInCells();
+		passabilityVersion = grid.getPassabilityVersion();
+		opacityVersion = grid.getOpacityVersion();
+		blocked = new BitMatrix(grid.getBlockedMatrix());
+		playerBlocked = new BitMatrix(grid.getPlayerBlockedMatrix());
+		solid = new BitMatrix(grid.getSolidMatrix());
+		movementCosts = grid.hasUniformMovementCost() ? null : new float[width * height];
+
+		if (movementCosts != null)
+		{
+			for (int y = 0; y < height; y++)
+			{
+				for (int x = 0; x < width; x++)
+				{
+					movementCosts[y * width + x] = grid.getMovementCost(x, y, null);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether a specific cell is blocked.
+	 * @param gx the grid x-coordinate of the cell.
+	 * @param gy the grid y-coordinate of the cell.
+	 * @return whether the cell is blocked, cells outside the grid are always blocked.
+	 */
+	public boolean isBlocked(int gx, int gy)
+	{
+		if (gx < 0 || gy < 0 || gx >= width || gy >= height)
+		{
+			return true;
+		}
+
+		return blocked.get(gx, gy);
+	}
+
+	/**
+	 * Returns whether a specific cell is blocked for a specific mover.
+	 * @param gx the grid x-coordinate of the cell.
+	 * @param gy the grid y-coordinate of the cell.
+	 * @param mover the mover.
+	 * @return whether the cell is blocked, cells outside the grid are always blocked.
+	 */
+	public boolean isBlocked(int gx, int gy, IMover mover)
+	{
+		if (!(mover instanceof Player))
+		{
+			return isBlocked(gx, gy);
+		}
+
+		if (gx < 0 || gy < 0 || gx >= width || gy >= height)
+		{
+			return true;
+		}
+
+		return playerBlocked.get(gx, gy);
+	}
+
+	/**
+	 * Returns whether a specific cell is solid.
+	 * @param gx the grid x-coordinate of the cell.
+	 * @param gy the grid y-coordinate of the cell.
+	 * @return whether the cell is solid, cells outside the grid are always solid.
+	 */
+	public boolean isSolid(int gx, int gy)
+	{
+		if (gx < 0 || gy < 0 || gx >= width || gy >= height)
+		{
+			return true;
+		}
+
+		return solid.get(gx, gy);
+	}
+
+	/**
+	 * Returns the cost of moving onto a specific cell.
+	 * @param gx the grid x-coordinate of the cell.
+	 * @param gy the grid y-coordinate of the cell.
+	 * @return the movement cost.
+	 */
+	public float getMovementCost(int gx, int gy)
+	{
+		return movementCosts != null ? movementCosts[gy * width + gx] : 1f;
+	}
+
+	/**
+	 * @return the width of the snapshot in cells.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * @return the height of the snapshot in cells.
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+	/**
+	 * @return the passability version of the grid when the snapshot was taken.
+	 */
+	public int getPassabilityVersion()
+	{
+		return passabilityVersion;
+	}
+
+	/**
+	 * @return the opacity version of the grid when the snapshot was taken.
+	 */
+	public int getOpacityVersion()
+	{
+		return opacityVersion;
+	}
+}
@@ -0,0 +1,79 @@
+package gridwhack.gameobject.grid;
+
+import gridwhack.path.*;
+
+/**
+ * Grid snapshot path finder.
+ * Binary heap A* that reads passability and movement costs from a grid snapshot
+ * instead of the grid, so that it can run on a worker thread. Each thread needs
+ * its own instance because the node store is reused between searches.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridSnapshotPathFinder extends GridBinaryHeapPathFinder
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private GridSnapshot snapshot;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the path finder.
+	 * @param heuristic The heuristic to use.
+	 * @param grid The grid on which to find the path.
+	 */
+	public GridSnapshotPathFinder(IAStarHeuristic heuristic, Grid grid)
+	{
+		super(heuristic, grid);
+	}
+
+	/**
+	 * Returns whether a specific cell is blocked in the snapshot.
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @param mover The mover.
+	 * @return Whether the cell is blocked.
+	 */
+	@Override
+	protected boolean isBlocked(int x, int y, IMover mover)
+	{
+		return snapshot.isBlocked(x, y, mover);
+	}
+
+	/**
+	 * Returns the cost of moving onto a specific cell in the snapshot.
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @param mover The mover.
+	 * @return The movement cost.
+	 */
+	@Override
+	protected float getMovementCost(int x, int y, IMover mover)
+	{
+		return snapshot.getMovementCost(x, y);
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The snapshot to search.
+	 */
+	public GridSnapshot getSnapshot()
+	{
+		return snapshot;
+	}
+
+	/**
+	 * @param snapshot The snapshot to search.
+	 */
+	public void setSnapshot(GridSnapshot snapshot)
+	{
+		this.snapshot = snapshot;
+	}
+}
@@ -0,0 +1,146 @@
+package gridwhack.gameobject.grid;
+
+import gridwhack.gameobject.loot.Loot;
+import gridwhack.gameobject.tile.Tile;
+import gridwhack.gameobject.unit.Unit;
+
+/**
+ * Grid storage class.
+ * Stores the tile, loot and unit in each cell of a grid.
+ * All grid storages must be extended from this class.
+ * Callers are expected to keep the coordinates within the grid.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public abstract class GridStorage
+{
+	public static enum StorageType
+	{
+		OBJECT, // references in flat arrays
+		ARRAY, // tile types and ids in flat primitive arrays
+		CHUNKED, // chunks that can be paged out
+	}
+
+	// ----------
+	// Properties
+	// ----------
+
+	protected Grid grid;
+	protected int width;
+	protected int height;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the storage.
+	 * @param width The width of the grid in cells.
+	 * @param height The height of the grid in cells.
+	 */
+	public GridStorage(int width, int height)
+	{
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Lets this storage know which part of the grid is in use.
+	 * Storages that page cells out of memory keep the cells around the focus.
+	 * @param gx The grid x-coordinate of the focus.
+	 * @param gy The grid y-coordinate of the focus.
+	 */
+	public void setFocus(int gx, int gy)
+	{
+		// nothing to page by default
+	}
+
+	/**
+	 * Returns whether this storage shares one tile between all cells of the same type.
+	 * Shared tiles have no cell of their own, so they must be drawn at the position of each cell.
+	 * @return Whether the tiles are shared.
+	 */
+	public boolean sharesTiles()
+	{
+		return false;
+	}
+
+	// ----------------
+	// Abstract methods
+	// ----------------
+
+	/**
+	 * Returns the tile in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The tile, or null if the cell has no tile.
+	 */
+	public abstract Tile getTile(int gx, int gy);
+
+	/**
+	 * Places a tile in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param tile The tile, or null to clear the cell.
+	 */
+	public abstract void setTile(int gx, int gy, Tile tile);
+
+	/**
+	 * Returns the loot in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The loot, or null if the cell has no loot.
+	 */
+	public abstract Loot getLoot(int gx, int gy);
+
+	/**
+	 * Places loot in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param loot The loot, or null to clear the cell.
+	 */
+	public abstract void setLoot(int gx, int gy, Loot loot);
+
+	/**
+	 * Returns the unit in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The unit, or null if the cell has no unit.
+	 */
+	public abstract Unit getUnit(int gx, int gy);
+
+	/**
+	 * Places a unit in a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @param unit The unit, or null to clear the cell.
+	 */
+	public abstract void setUnit(int gx, int gy, Unit unit);
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @param grid The grid this storage belongs to.
+	 */
+	public void setGrid(Grid grid)
+	{
+		this.grid = grid;
+	}
+
+	/**
+	 * @return The width of the grid in cells.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * @return The height of the grid in cells.
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+}
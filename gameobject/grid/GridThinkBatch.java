@@ -0,0 +1,137 @@
+package gridwhack.gameobject.grid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import gridwhack.core.WorkerPool;
+import gridwhack.gameobject.character.NPCCharacter;
+
+/**
+ * Grid think batch class file.
+ * Lets many characters decide what to do at once on the worker pool. Thinking only reads
+ * the grid and changes nothing but the character itself, so the grid must not change until
+ * the batch has been joined. The decisions are carried out one character at a time in a
+ * fixed order afterwards, which keeps the outcome of conflicting moves deterministic.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridThinkBatch
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private static final int TASKS_PER_WORKER = 4; // split finer than the worker count to even out the load
+
+	private ArrayList<NPCCharacter> characters;
+	private ForkJoinTask<Void> task;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the batch.
+	 * @param characters the characters that should think.
+	 */
+	public GridThinkBatch(List<NPCCharacter> characters)
+	{
+		this.characters = new ArrayList<NPCCharacter>(characters);
+	}
+
+	/**
+	 * Starts thinking on the worker pool.
+	 */
+	public void submit()
+	{
+		WorkerPool workers = WorkerPool.getInstance();
+		int threshold = Math.max(1, characters.size() / (workers.getParallelism() * TASKS_PER_WORKER));
+
+		task = workers.getPool().submit(new ThinkTask(0, characters.size(), threshold));
+	}
+
+	/**
+	 * Waits until all characters have thought.
+	 */
+	public void join()
+	{
+		if (task != null)
+		{
+			task.join();
+		}
+	}
+
+	/**
+	 * Lets a range of the characters think on the current thread.
+	 * @param from the index of the first character.
+	 * @param to the index past the last character.
+	 */
+	private void think(int from, int to)
+	{
+		for (int i = from; i < to; i++)
+		{
+			characters.get(i).think();
+		}
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return whether all characters have thought.
+	 */
+	public boolean isDone()
+	{
+		return task != null && task.isDone();
+	}
+
+	/**
+	 * @return the characters in this batch.
+	 */
+	public ArrayList<NPCCharacter> getCharacters()
+	{
+		return characters;
+	}
+
+	/**
+	 * Private inner class that splits a range of characters until it is small enough to think.
+	 */
+	private class ThinkTask extends RecursiveAction
+	{
+		private int from;
+		private int to;
+		private int threshold;
+
+		/**
+		 * Creates the task.
+		 * @param from the index of the first character.
+		 * @param to the index past the last character.
+		 * @param threshold the number of characters to think without splitting.
+		 */
+		public ThinkTask(int from, int to, int threshold)
+		{
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		/**
+		 * Thinks for the range or splits it in two.
+		 */
+		@Override
+		protected void compute()
+		{
+			if (to - from <= threshold)
+			{
+				think(from, to);
+			}
+			else
+			{
+				int middle = (from + to) >>> 1;
+				invokeAll(new ThinkTask(from, middle, threshold), new ThinkTask(middle, to, threshold));
+			}
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package gridwhack.gameobject.grid;
+
+import java.util.ArrayList;
+
+import gridwhack.gameobject.unit.Unit;
+
+/**
+ * Grid unit index class file.
+ * Spatial hash that sorts the units on a grid into square buckets of cells, so that
+ * the units around a cell can be found by looking at a few buckets instead of the
+ * whole grid. Buckets are only created once a unit enters them.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridUnitIndex
+{
+	// ----------
+	// Properties
+	// ----------
+
+	public static final int BUCKET_SIZE = 8;
+
+	private static final int BUCKET_SHIFT = 3; // log2 of the bucket size
+
+	private int widthInBuckets;
+	private int heightInBuckets;
+	private ArrayList<ArrayList<Unit>> buckets; // null for buckets that have never held a unit
+	private int size;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the index.
+	 * @param width The width of the grid in cells.
+	 * @param height The height of the grid in cells.
+	 */
+	public GridUnitIndex(int width, int height)
+	{
+		widthInBuckets = (width + BUCKET_SIZE - 1) >> BUCKET_SHIFT;
+		heightInBuckets = (height + BUCKET_SIZE - 1) >> BUCKET_SHIFT;
+
+		int bucketCount = widthInBuckets * heightInBuckets;
+		buckets = new ArrayList<ArrayList<Unit>>(bucketCount);
+
+		for (int i = 0; i < bucketCount; i++)
+		{
+			buckets.add(null);
+		}
+
+		size = 0;
+	}
+
+	/**
+	 * Adds a unit to this index.
+	 * @param unit The unit.
+	 * @param gx The grid x-coordinate of the unit.
+	 * @param gy The grid y-coordinate of the unit.
+	 */
+	public void add(Unit unit, int gx, int gy)
+	{
+		int index = getBucketIndex(gx, gy);
+		ArrayList<Unit> bucket = buckets.get(index);
+
+		if (bucket == null)
+		{
+			bucket = new ArrayList<Unit>(4);
+			buckets.set(index, bucket);
+		}
+
+		bucket.add(unit);
+		size++;
+	}
+
+	/**
+	 * Removes a unit from this index.
+	 * @param unit The unit.
+	 * @param gx The grid x-coordinate of the unit.
+	 * @param gy The grid y-coordinate of the unit.
+	 * @return Whether the unit was found.
+	 */
+	public boolean remove(Unit unit, int gx, int gy)
+	{
+		ArrayList<Unit> bucket = buckets.get(getBucketIndex(gx, gy));
+
+		if (bucket != null && bucket.remove(unit))
+		{
+			size--;
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Moves a unit within this index.
+	 * @param unit The unit.
+	 * @param fromX The grid x-coordinate the unit moved from.
+	 * @param fromY The grid y-coordinate the unit moved from.
+	 * @param toX The grid x-coordinate the unit moved to.
+	 * @param toY The grid y-coordinate the unit moved to.
+	 */
+	public void move(Unit unit, int fromX, int fromY, int toX, int toY)
+	{
+		// Most moves stay within the same bucket.
+		if (getBucketIndex(fromX, fromY) != getBucketIndex(toX, toY) && remove(unit, fromX, fromY))
+		{
+			add(unit, toX, toY);
+		}
+	}
+
+	/**
+	 * Adds the units within a square around a cell to a list.
+	 * @param cx The grid x-coordinate of the center cell.
+	 * @param cy The grid y-coordinate of the center cell.
+	 * @param radius The distance from the center cell along either axis.
+	 * @param result The list to add the units to.
+	 */
+	public void getUnits(int cx, int cy, int radius, ArrayList<Unit> result)
+	{
+		int minX = cx - radius;
+		int minY = cy - radius;
+		int maxX = cx + radius;
+		int maxY = cy + radius;
+		int minBx = Math.max(0, minX >> BUCKET_SHIFT);
+		int minBy = Math.max(0, minY >> BUCKET_SHIFT);
+		int maxBx = Math.min(widthInBuckets - 1, maxX >> BUCKET_SHIFT);
+		int maxBy = Math.min(heightInBuckets - 1, maxY >> BUCKET_SHIFT);
+
+		for (int by = minBy; by <= maxBy; by++)
+		{
+			for (int bx = minBx; bx <= maxBx; bx++)
+			{
+				ArrayList<Unit> bucket = buckets.get(by * widthInBuckets + bx);
+
+				if (bucket != null)
+				{
+					for (int i = 0, count = bucket.size(); i < count; i++)
+					{
+						Unit unit = bucket.get(i);
+						int gx = unit.getGridX();
+						int gy = unit.getGridY();
+
+						// Buckets on the edge of the square can hold units outside of it.
+						if (gx >= minX && gx <= maxX && gy >= minY && gy <= maxY)
+						{
+							result.add(unit);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the bucket that holds a specific cell.
+	 * @param gx The grid x-coordinate of the cell.
+	 * @param gy The grid y-coordinate of the cell.
+	 * @return The index.
+	 */
+	private int getBucketIndex(int gx, int gy)
+	{
+		return (gy >> BUCKET_SHIFT) * widthInBuckets + (gx >> BUCKET_SHIFT);
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The number of units in this index.
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+}
@@ -0,0 +1,15 @@
+package gridwhack.gameobject.grid;
+
+/**
+ * Grid path requester interface.
+ * All objects that request paths from the grid path scheduler must implement this interface.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public interface IGridPathRequester
+{
+	/**
+	 * Actions to be taken when a requested path has been found.
+	 * @param request the request, the path is null if no path was available.
+	 */
+	public void onPathReady(GridPathRequest request);
+}
@@ -0,0 +1,52 @@
+package gridwhack.gameobject.grid.event;
+
+import gridwhack.base.BaseObject;
+import gridwhack.event.GameEvent;
+import gridwhack.event.IEventType;
+
+/**
+ * Grid event class.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class GridEvent extends GameEvent
+{
+	// Grid event types.
+	public static enum Type implements IEventType {
+		PASSABILITY_CHANGE,
+		OPACITY_CHANGE,
+	};
+
+	private int gridX;
+	private int gridY;
+
+	/**
+	 * Creates the event.
+	 * @param type the type of this event.
+	 * @param source the source of this event.
+	 * @param gx the grid x-coordinate of the cell that changed.
+	 * @param gy the grid y-coordinate of the cell that changed.
+	 */
+	public GridEvent(IEventType type, BaseObject source, int gx, int gy)
+	{
+		super(type, source);
+
+		this.gridX = gx;
+		this.gridY = gy;
+	}
+
+	/**
+	 * @return the grid x-coordinate of the cell that changed.
+	 */
+	public int getGridX()
+	{
+		return gridX;
+	}
+
+	/**
+	 * @return the grid y-coordinate of the cell that changed.
+	 */
+	public int getGridY()
+	{
+		return gridY;
+	}
+}
@@ -0,0 +1,12 @@
+package gridwhack.gameobject.grid.event;
+
+import gridwhack.event.IEventListener;
+
+/**
+ * Grid listener interface.
+ * All grid listeners must implement this interface.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public interface IGridListener extends IEventListener
+{
+}
@@ -0,0 +1,15 @@
+package gridwhack.gameobject.grid.event;
+
+/**
+ * Grid opacity listener interface.
+ * All grid opacity listeners must implement this interface.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public interface IGridOpacityListener extends IGridListener
+{
+	/**
+	 * Actions to be taken when a cell becomes solid or see-through.
+	 * @param e the event.
+	 */
+	public void onGridOpacityChange(GridEvent e);
+}
@@ -0,0 +1,15 @@
+package gridwhack.gameobject.grid.event;
+
+/**
+ * Grid passability listener interface.
+ * All grid passability listeners must implement this interface.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public interface IGridPassabilityListener extends IGridListener
+{
+	/**
+	 * Actions to be taken when a cell becomes blocked or unblocked.
+	 * @param e the event.
+	 */
+	public void onGridPassabilityChange(GridEvent e);
+}
@@ -5,6 +5,7 @@ import java.awt.Graphics2D;
 import gridwhack.base.BaseObject;
 import gridwhack.gameobject.DrawableGameObject;
 import gridwhack.gameobject.grid.Grid;
+import gridwhack.gameobject.grid.GridStorage;
 import gridwhack.util.Vector2;
 
 /**
@@ -41,6 +42,19 @@ public abstract class Map extends DrawableGameObject
 
 		setDimension(new Vector2(width, height));
 	}
+
+	/**
+	 * Creates the map on a specific storage.
+	 * @param storage The storage for the grid cells, its size determines the size of the map.
+	 */
+	public Map(GridStorage storage)
+	{
+		super();
+
+		grid = new Grid(storage);
+
+		setDimension(new Vector2(storage.getWidth(), storage.getHeight()));
+	}
 	
 	// ------------------
 	// Overridden methods
@@ -77,4 +91,4 @@ public abstract class Map extends DrawableGameObject
 	{
 		return grid;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
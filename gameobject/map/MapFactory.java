@@ -2,6 +2,11 @@ package gridwhack.gameobject.map;
 
 import gridwhack.base.BaseObject;
 import gridwhack.gameobject.exception.InvalidGameObjectException;
+import gridwhack.gameobject.grid.GridArrayStorage;
+import gridwhack.gameobject.grid.GridChunkedStorage;
+import gridwhack.gameobject.grid.GridObjectStorage;
+import gridwhack.gameobject.grid.GridStorage;
+import gridwhack.gameobject.grid.GridStorage.StorageType;
 import gridwhack.gameobject.map.Map.MapType;
 import gridwhack.gameobject.map.dungeon.DungeonMap;
 
@@ -16,6 +21,8 @@ public class MapFactory extends BaseObject
 	// Properties
 	// ----------
 
+	public static final int CHUNKED_STORAGE_THRESHOLD = 1024 * 1024; // maps with more cells than this are chunked
+
 	private static final MapFactory instance = new MapFactory();
 
 	// -------
@@ -40,6 +47,7 @@ public class MapFactory extends BaseObject
 
 	/**
 	 * Creates a specific map.
+	 * Maps larger than the chunked storage threshold are stored in chunks that can be paged out.
 	 * @param type The map type.
 	 * @param width The map width in grid cells.
 	 * @param height The map width in grid cells.
@@ -47,13 +55,39 @@ public class MapFactory extends BaseObject
 	 * @throws InvalidGameObjectException If the map could not be created.
 	 */
 	public Map create(MapType type, int width, int height) throws InvalidGameObjectException
+	{
+		return create(type, createStorage(width, height));
+	}
+
+	/**
+	 * Creates a specific map on a specific type of storage.
+	 * @param type The map type.
+	 * @param storageType The storage type.
+	 * @param width The map width in grid cells.
+	 * @param height The map height in grid cells.
+	 * @return The map.
+	 * @throws InvalidGameObjectException If the map could not be created.
+	 */
+	public Map create(MapType type, StorageType storageType, int width, int height) throws InvalidGameObjectException
+	{
+		return create(type, createStorage(storageType, width, height));
+	}
+
+	/**
+	 * Creates a specific map on a specific storage.
+	 * @param type The map type.
+	 * @param storage The storage for the grid cells, its size determines the size of the map.
+	 * @return The map.
+	 * @throws InvalidGameObjectException If the map could not be created.
+	 */
+	public Map create(MapType type, GridStorage storage) throws InvalidGameObjectException
 	{
 		Map object;
 
 		switch (type)
 		{
 			case DUNGEON:
-				object = new DungeonMap(width, height);
+				object = new DungeonMap(storage);
 				break;
 
 			default:
@@ -64,4 +98,38 @@ public class MapFactory extends BaseObject
 
 		return object;		
 	}
+
+	/**
+	 * Creates the storage for a map of a specific size.
+	 * @param width The map width in grid cells.
+	 * @param height The map height in grid cells.
+	 * @return The storage.
+	 */
+	public GridStorage createStorage(int width, int height)
+	{
+		StorageType type = (long) width * height > CHUNKED_STORAGE_THRESHOLD ? StorageType.CHUNKED : StorageType.OBJECT;
+		return createStorage(type, width, height);
+	}
+
+	/**
+	 * Creates a specific type of storage for a map of a specific size.
+	 * @param type The storage type.
+	 * @param width The map width in grid cells.
+	 * @param height The map height in grid cells.
+	 * @return The storage.
+	 */
+	public GridStorage createStorage(StorageType type, int width, int height)
+	{
+		switch (type)
+		{
+			case ARRAY:
+				return new GridArrayStorage(width, height);
+
+			case CHUNKED:
+				return new GridChunkedStorage(width, height);
+
+			default:
+				return new GridObjectStorage(width, height);
+		}
+	}
 }
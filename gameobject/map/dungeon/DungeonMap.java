@@ -7,8 +7,11 @@ import gridwhack.gameobject.character.hostile.HostileCharacter.HostileType;
 import gridwhack.gameobject.character.hostile.HostileFactory;
 import gridwhack.gameobject.character.player.Player;
 import gridwhack.gameobject.exception.InvalidGameObjectException;
+import gridwhack.gameobject.grid.GridChunkedStorage;
 import gridwhack.gameobject.grid.GridGameObject;
+import gridwhack.gameobject.grid.GridStorage;
 import gridwhack.gameobject.map.Map;
+import gridwhack.gameobject.tile.Tile;
 import gridwhack.gameobject.tile.Tile.TileType;
 import gridwhack.gameobject.tile.TileFactory;
 import gridwhack.util.Vector2;
@@ -35,6 +38,15 @@ public class DungeonMap extends Map
 		super(width, height);
 	}
 
+	/**
+	 * Creates the map on a specific storage.
+	 * @param storage The storage for the grid cells.
+	 */
+	public DungeonMap(GridStorage storage)
+	{
+		super(storage);
+	}
+
 	/**
 	 * Initializes the map.
 	 */
@@ -43,9 +55,9 @@ public class DungeonMap extends Map
 		Random rand = new Random();
 
 		// Lets add some tiles...
+		// They are added as they are spawned, so that storages that page cells out never hold all of them at once.
 
 		TileFactory tileFactory = TileFactory.getInstance();
-		BaseCollection tiles = new BaseCollection();
 		int width = getWidth() - 3;
 		int height = getHeight() - 2;
 
@@ -53,27 +65,31 @@ public class DungeonMap extends Map
 		{
 			for (int x = 3; x < width; x++)
 			{
-				tiles.add(tileFactory.spawn(TileType.WALL, x, 3));
+				grid.addTile((Tile) tileFactory.spawn(TileType.WALL, x, 3));
+			}
 
-				for (int y = 4; y < height; y++)
+			// Fill one band of chunks at a time, so that only the chunks in the band are in memory.
+			for (int bandY = 4; bandY < height; bandY += GridChunkedStorage.CHUNK_SIZE)
+			{
+				for (int x = 3; x < width; x++)
 				{
-					tiles.add(tileFactory.spawn(TileType.FLOOR, x, y));
+					for (int y = bandY, maxY = Math.min(height, bandY + GridChunkedStorage.CHUNK_SIZE); y < maxY; y++)
+					{
+						grid.addTile((Tile) tileFactory.spawn(TileType.FLOOR, x, y));
+					}
 				}
 			}
 
-			tiles.add(tileFactory.spawn(TileType.ARCH, 4, 2));
-			tiles.add(tileFactory.spawn(TileType.STAIRS_UP, 4, 3));
-			tiles.add(tileFactory.spawn(TileType.ARCH, width - 2, 2));
-			tiles.add(tileFactory.spawn(TileType.STAIRS_DOWN, width - 2, 3));
+			grid.setTile((Tile) tileFactory.spawn(TileType.ARCH, 4, 2));
+			grid.setTile((Tile) tileFactory.spawn(TileType.STAIRS_UP, 4, 3));
+			grid.setTile((Tile) tileFactory.spawn(TileType.ARCH, width - 2, 2));
+			grid.setTile((Tile) tileFactory.spawn(TileType.STAIRS_DOWN, width - 2, 3));
 		}
 		catch (InvalidGameObjectException e)
 		{
 			e.printStackTrace();
 		}
 
-		tiles.applyChanges();
-		grid.addTiles(tiles);
-
 		// Then lets add some hostiles...
 
 		BaseCollection characters = new BaseCollection();
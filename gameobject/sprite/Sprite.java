@@ -60,6 +60,14 @@ public class Sprite extends DrawableGameObject
 		this.image = image;
 	}
 
+	/**
+	 * @return The image that represents the sprite.
+	 */
+	public Image getImage()
+	{
+		return image;
+	}
+
 	/**
 	 * @return The width of this sprite.
 	 */
@@ -48,4 +48,14 @@ public class Arch extends Tile
 	{
 		return true; // solid for all game objects
 	}
+
+	/**
+	 * Returns the type of this tile.
+	 * @return The type.
+	 */
+	@Override
+	public TileType getType()
+	{
+		return TileType.ARCH;
+	}
 }
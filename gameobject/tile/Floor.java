@@ -54,4 +54,14 @@ public class Floor extends Tile
 	{
 		return false; // not solid for any game objects.
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns the type of this tile.
+	 * @return The type.
+	 */
+	@Override
+	public TileType getType()
+	{
+		return TileType.FLOOR;
+	}
+}
\ No newline at end of file
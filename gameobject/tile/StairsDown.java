@@ -44,6 +44,16 @@ public class StairsDown extends Tile
 		return true;
 	}
 
+	/**
+	 * Returns whether this tile blocks the player.
+	 * @return whether the tile is blocked for the player.
+	 */
+	@Override
+	public boolean isBlockedForPlayer()
+	{
+		return false; // the player can always take the stairs
+	}
+
 	/**
 	 * Returns whether a specific game object can see through this tile.
 	 * @param viewer The game object.
@@ -54,4 +64,14 @@ public class StairsDown extends Tile
 	{
 		return false; // solid for all game objects
 	}
+
+	/**
+	 * Returns the type of this tile.
+	 * @return The type.
+	 */
+	@Override
+	public TileType getType()
+	{
+		return TileType.STAIRS_DOWN;
+	}
 }
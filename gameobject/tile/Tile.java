@@ -36,6 +36,16 @@ public abstract class Tile extends GridGameObject
 		super();
 	}
 
+	/**
+	 * Returns whether this tile blocks the player.
+	 * The player is the only mover that tiles tell apart from the others.
+	 * @return whether the tile is blocked for the player.
+	 */
+	public boolean isBlockedForPlayer()
+	{
+		return isBlocked(null);
+	}
+
 	// ----------------
 	// Abstract methods
 	// ----------------
@@ -53,4 +63,10 @@ public abstract class Tile extends GridGameObject
 	 * @return whether the tile is solid.
 	 */
 	public abstract boolean isSolid(IViewer viewer);
+
+	/**
+	 * Returns the type of this tile, which is enough to spawn the tile again.
+	 * @return The type.
+	 */
+	public abstract TileType getType();
 }
@@ -49,4 +49,14 @@ public class Wall extends Tile
 	{
 		return true; // solid for all game objects
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns the type of this tile.
+	 * @return The type.
+	 */
+	@Override
+	public TileType getType()
+	{
+		return TileType.WALL;
+	}
+}
\ No newline at end of file
@@ -8,6 +8,8 @@ import gridwhack.fov.IViewer;
 import gridwhack.gameobject.grid.Grid;
 import gridwhack.gameobject.grid.GridGameObject;
 import gridwhack.gameobject.grid.GridPath;
+import gridwhack.gameobject.grid.GridPathRequest;
+import gridwhack.gameobject.grid.IGridPathRequester;
 import gridwhack.path.IMover;
 import gridwhack.util.Vector2;
 
@@ -15,7 +17,7 @@ import gridwhack.util.Vector2;
  * Unit class.
  * @author Christoffer Niska <ChristofferNiska@gmail.com>
  */
-public abstract class Unit extends GridGameObject implements IMover, IViewer
+public abstract class Unit extends GridGameObject implements IMover, IViewer, IGridPathRequester
 {
 	// ----------
 	// Properties
@@ -24,8 +26,10 @@ public abstract class Unit extends GridGameObject implements IMover, IViewer
 	public static enum Directions { LEFT, RIGHT, UP, DOWN }
 
 	protected int viewRange = 0; // units are blind by default
+	protected FovType fovType = FovType.RAY_TRACING;
 	protected GridFov fov;
 	protected GridPath path;
+	protected GridPathRequest pathRequest;
 
 	// -------
 	// Methods
@@ -44,10 +48,23 @@ public abstract class Unit extends GridGameObject implements IMover, IViewer
 	 */
 	public void init()
 	{
+		createFov();
+	}
+
+	/**
+	 * Creates the field of view of this unit, replacing the current one.
+	 */
+	private void createFov()
+	{
+		if (fov != null)
+		{
+			removeListener(fov);
+		}
+
 		try
 		{
 			// Create a new field of view for the unit.
-			fov = FovFactory.getInstance().create(FovType.RAY_TRACING, viewRange, grid, this);
+			fov = FovFactory.getInstance().create(fovType, viewRange, grid, this);
 		}
 		catch (InvalidObjectException e)
 		{
@@ -59,6 +76,53 @@ public abstract class Unit extends GridGameObject implements IMover, IViewer
 		addListener(fov); // let the fov listen to this unit.
 	}
 
+	/**
+	 * Requests a path to the given target from the grid path scheduler.
+	 * The current path is dropped and the new one is delivered on a later update.
+	 * @param tgx the target grid x-coordinate.
+	 * @param tgy the target grid y-coordinate.
+	 * @param maxPathLength the maximum length of path.
+	 */
+	public void requestPath(int tgx, int tgy, int maxPathLength)
+	{
+		path = null;
+		pathRequest = grid.getPathScheduler().request(this, this, getGridX(), getGridY(), tgx, tgy, maxPathLength);
+	}
+
+	/**
+	 * Returns whether the unit is waiting for a requested path.
+	 * @return whether a path has been requested.
+	 */
+	public boolean isPathRequested()
+	{
+		return pathRequest != null;
+	}
+
+	// --------------
+	// Event handlers
+	// --------------
+
+	/**
+	 * Actions to be taken when a requested path has been found.
+	 * @param request the request.
+	 */
+	public void onPathReady(GridPathRequest request)
+	{
+		// Make sure this is the latest path we asked for.
+		if (request == pathRequest)
+		{
+			pathRequest = null;
+
+			GridPath found = request.getPath();
+
+			// Paths start from where we were when we asked for them.
+			if (found != null && found.getX(0) == getGridX() && found.getY(0) == getGridY())
+			{
+				path = found;
+			}
+		}
+	}
+
 	// -------------------
 	// Getters and setters
 	// -------------------
@@ -93,6 +157,35 @@ public abstract class Unit extends GridGameObject implements IMover, IViewer
 		return viewRange;
 	}
 
+	/**
+	 * Sets the type of field of view for this unit.
+	 * An initialized unit gets a new field of view of the type, which is empty until the unit next moves.
+	 * @param type the field of view type.
+	 */
+	public void setFovType(FovType type)
+	{
+		if (type == fovType)
+		{
+			return;
+		}
+
+		this.fovType = type;
+
+		if (fov != null)
+		{
+			createFov();
+		}
+	}
+
+	/**
+	 * Returns the type of field of view for this unit.
+	 * @return the field of view type.
+	 */
+	public FovType getFovType()
+	{
+		return fovType;
+	}
+
 	/**
 	 * Returns the units field of view.
 	 * @return the fov.
@@ -101,4 +194,4 @@ public abstract class Unit extends GridGameObject implements IMover, IViewer
 	{
 		return fov;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -62,8 +62,9 @@ public abstract class GuiElement extends GameObject implements IDrawable
 		this.width = width;
 		this.height = height;
 
-		// We use the gui font by default.
-		this.font = font == null ? Gui.getInstance().getWindow().getFont() : font;
+		// We use the gui font by default, there is no window to take it from when running headless.
+		Window window = Gui.getInstance().getWindow();
+		this.font = window != null ? window.getFont() : new Font("Arial", Font.PLAIN, 12);
 
 		// Line height is 1.5 times the font size.
 		this.lineHeight = (int) Math.round(font.getSize() * 1.5);
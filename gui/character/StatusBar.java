@@ -55,6 +55,22 @@ public abstract class StatusBar extends GuiCharacterElement implements IEventLis
 		this.barWidth = width;
 	}
 
+	/**
+	 * @return the bar color.
+	 */
+	public Color getBarColor()
+	{
+		return barColor;
+	}
+
+	/**
+	 * @return the width of the filled part of the bar.
+	 */
+	public int getBarWidth()
+	{
+		return barWidth;
+	}
+
 	/**
 	 * Calculates the bar width based on the current value.
 	 * @param current the current value.
@@ -94,4 +110,4 @@ public abstract class StatusBar extends GuiCharacterElement implements IEventLis
 		g.setColor(barColor);
 		g.fillRect(getX(), getY(), barWidth, getHeight());
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
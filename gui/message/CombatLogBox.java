@@ -22,11 +22,12 @@ public class CombatLogBox extends MessageBox
 	}
 
 	/**
-	 * Returns the messages in the stream.
+	 * Returns the latest messages in the stream.
+	 * @param count the maximum number of messages.
 	 * @return the messages.
 	 */
-	public ArrayList<String> getMessages() 
+	public ArrayList<String> getMessages(int count)
 	{
-		return CombatLog.getMessages();
+		return CombatLog.getMessages(count);
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -47,7 +47,7 @@ public abstract class MessageBox extends GuiElement
 		g.setColor(getTextColor());
 		
 		// get the messages from the combat log.
-		ArrayList<String> messages = getMessages();
+		ArrayList<String> messages = getMessages(lineCount);
 		
 		// make sure that we have messages.
 		if( !messages.isEmpty() )
@@ -62,8 +62,9 @@ public abstract class MessageBox extends GuiElement
 	}
 	
 	/**
-	 * Returns the messages in the stream.
+	 * Returns a copy of the latest messages in the stream.
+	 * @param count the maximum number of messages.
 	 * @return the messages.
 	 */
-	public abstract ArrayList<String> getMessages();
+	public abstract ArrayList<String> getMessages(int count);
 }
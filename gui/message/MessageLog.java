@@ -27,4 +27,14 @@ public class MessageLog
 	{
 		return stream.out();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns a copy of the latest messages in the message log.
+	 * @param count the maximum number of messages.
+	 * @return the messages, newest first.
+	 */
+	public static ArrayList<String> getMessages(int count)
+	{
+		return stream.out(count);
+	}
+}
\ No newline at end of file
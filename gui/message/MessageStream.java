@@ -4,6 +4,7 @@ import java.util.ArrayList;
 
 /**
  * Message stream class file.
+ * Messages can be added on the game thread while the latest ones are read on a render thread.
  * @author Christoffer Niska <ChristofferNiska@gmail.com>
  */
 public class MessageStream 
@@ -22,7 +23,7 @@ public class MessageStream
 	 * Adds a message to the beginning of the stream.
 	 * @param message the message.
 	 */
-	public void in(String message)
+	public synchronized void in(String message)
 	{
 		stream.add(0, message);
 	}
@@ -34,4 +35,14 @@ public class MessageStream
 	{
 		return stream;
 	}
+
+	/**
+	 * Returns a copy of the latest messages in the stream, newest first.
+	 * @param count the maximum number of messages.
+	 * @return the messages.
+	 */
+	public synchronized ArrayList<String> out(int count)
+	{
+		return new ArrayList<String>(stream.subList(0, Math.min(count, stream.size())));
+	}
 }
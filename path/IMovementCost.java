@@ -0,0 +1,18 @@
+package gridwhack.path;
+
+/**
+ * Movement cost interface file.
+ * All movement cost functions must implement this interface.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public interface IMovementCost
+{
+	/**
+	 * Returns the cost of moving onto the given coordinates.
+	 * @param x the x-coordinate.
+	 * @param y the y-coordinate.
+	 * @param mover the entity moving.
+	 * @return the movement cost.
+	 */
+	public float getCost(int x, int y, IMover mover);
+}
@@ -0,0 +1,127 @@
+package gridwhack.render;
+
+import java.awt.*;
+import java.util.List;
+
+import gridwhack.gameobject.sprite.Sprite;
+import gridwhack.gui.character.StatusBar;
+import gridwhack.util.Vector2;
+
+/**
+ * Render snapshot class.
+ * Immutable copy of the map part of a frame: the images to draw with their positions
+ * and the status bars drawn on top of them. The simulation publishes a snapshot after
+ * every update so that a render thread can draw it while the simulation moves on.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public final class RenderSnapshot implements IDrawable
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private final long tick;
+	private final Image[] images;
+	private final int[] xs;
+	private final int[] ys;
+	private final int[] bars; // x, y, width, height and filled width of each status bar
+	private final Color[] barColors; // background and bar color of each status bar
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the snapshot.
+	 * @param tick The number of the update the snapshot was taken after.
+	 * @param sprites The sprites to draw, in drawing order.
+	 * @param positions The position to draw each sprite at in pixels, a sprite can be drawn in more than one place.
+	 * @param statusBars The status bars to draw on top of the sprites.
+	 */
+	public RenderSnapshot(long tick, List<Sprite> sprites, List<Vector2> positions, List<StatusBar> statusBars)
+	{
+		this.tick = tick;
+
+		int count = sprites.size();
+		images = new Image[count];
+		xs = new int[count];
+		ys = new int[count];
+
+		for (int i = 0; i < count; i++)
+		{
+			Vector2 position = positions.get(i);
+
+			images[i] = sprites.get(i).getImage();
+			xs[i] = (int) position.x;
+			ys[i] = (int) position.y;
+		}
+
+		int barCount = statusBars.size();
+		bars = new int[barCount * 5];
+		barColors = new Color[barCount * 2];
+
+		for (int i = 0; i < barCount; i++)
+		{
+			StatusBar bar = statusBars.get(i);
+
+			bars[i * 5] = bar.getX();
+			bars[i * 5 + 1] = bar.getY();
+			bars[i * 5 + 2] = bar.getWidth();
+			bars[i * 5 + 3] = bar.getHeight();
+			bars[i * 5 + 4] = bar.getBarWidth();
+			barColors[i * 2] = bar.getBackgroundColor();
+			barColors[i * 2 + 1] = bar.getBarColor();
+		}
+	}
+
+	/**
+	 * Draws the snapshot.
+	 * @param g The graphics context.
+	 */
+	public void draw(Graphics2D g)
+	{
+		for (int i = 0; i < images.length; i++)
+		{
+			if (images[i] != null)
+			{
+				g.drawImage(images[i], xs[i], ys[i], null);
+			}
+		}
+
+		for (int i = 0; i < barColors.length / 2; i++)
+		{
+			g.setColor(barColors[i * 2]);
+			g.fillRect(bars[i * 5], bars[i * 5 + 1], bars[i * 5 + 2], bars[i * 5 + 3]);
+			g.setColor(barColors[i * 2 + 1]);
+			g.fillRect(bars[i * 5], bars[i * 5 + 1], bars[i * 5 + 4], bars[i * 5 + 3]);
+		}
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The number of the update the snapshot was taken after.
+	 */
+	public long getTick()
+	{
+		return tick;
+	}
+
+	/**
+	 * @return The number of images in the snapshot.
+	 */
+	public int getImageCount()
+	{
+		return images.length;
+	}
+
+	/**
+	 * @return The number of status bars in the snapshot.
+	 */
+	public int getStatusBarCount()
+	{
+		return barColors.length / 2;
+	}
+}
@@ -0,0 +1,101 @@
+package gridwhack.render;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Triple buffer class.
+ * Hands values from a single producer thread to a single consumer thread without locks.
+ * The producer always has a slot of its own to write to and the consumer always has a
+ * slot of its own to read from, the third slot holds the latest published value and is
+ * swapped with either of them atomically. Neither thread ever waits for the other, and
+ * the consumer always gets the latest value that has been published.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ */
+public class TripleBuffer<T>
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private static final int FRESH = 1 << 6; // set when the middle slot holds a value the consumer has not seen
+
+	// Slot indices are packed into two bits each: back in bits 0-1, middle in bits 2-3, front in bits 4-5.
+	private AtomicInteger state;
+	private Object[] slots;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the buffer with all slots empty.
+	 */
+	public TripleBuffer()
+	{
+		slots = new Object[3];
+		state = new AtomicInteger(0 | (1 << 2) | (2 << 4));
+	}
+
+	/**
+	 * Publishes a value, replacing the previous value if the consumer has not taken it yet.
+	 * May only be called from the producer thread.
+	 * @param value The value.
+	 */
+	public void publish(T value)
+	{
+		slots[state.get() & 3] = value;
+
+		// Swap the back and middle slots, the atomic update also publishes the slot contents.
+		while (true)
+		{
+			int current = state.get();
+			int back = current & 3;
+			int middle = (current >> 2) & 3;
+			int next = (current & (3 << 4)) | (back << 2) | middle | FRESH;
+
+			if (state.compareAndSet(current, next))
+			{
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the latest published value, taking it from the middle slot if there is a new one.
+	 * May only be called from the consumer thread.
+	 * @return The value, or null if nothing has been published yet.
+	 */
+	@SuppressWarnings("unchecked")
+	public T consume()
+	{
+		while (true)
+		{
+			int current = state.get();
+
+			if ((current & FRESH) == 0)
+			{
+				break;
+			}
+
+			int middle = (current >> 2) & 3;
+			int front = (current >> 4) & 3;
+			int next = (current & 3) | (front << 2) | (middle << 4);
+
+			if (state.compareAndSet(current, next))
+			{
+				break;
+			}
+		}
+
+		return (T) slots[(state.get() >> 4) & 3];
+	}
+
+	/**
+	 * Returns whether a value has been published that the consumer has not taken yet.
+	 * @return Whether there is a new value.
+	 */
+	public boolean hasFresh()
+	{
+		return (state.get() & FRESH) != 0;
+	}
+}
@@ -0,0 +1,256 @@
+package gridwhack.util;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * Bit matrix class file.
+ * Matrix of booleans packed into longs, each row starts at a new word
+ * so that whole rows can be read and combined a word at a time.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ * @license New BSD License http://www.opensource.org/licenses/bsd-license.php
+ */
+public class BitMatrix
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private int width;
+	private int height;
+	private int wordsPerRow;
+	private long lastWordMask; // bits of the last word in each row that belong to the matrix
+	private long[] words;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the matrix with all bits cleared.
+	 * @param width The width of the matrix.
+	 * @param height The height of the matrix.
+	 */
+	public BitMatrix(int width, int height)
+	{
+		this.width = width;
+		this.height = height;
+
+		wordsPerRow = (width + 63) >>> 6;
+		lastWordMask = (width & 63) == 0 ? -1L : (1L << (width & 63)) - 1L;
+		words = new long[wordsPerRow * height];
+	}
+
+	/**
+	 * Creates a copy of the given matrix.
+	 * @param other The matrix to copy.
+	 */
+	public BitMatrix(BitMatrix other)
+	{
+		width = other.width;
+		height = other.height;
+		wordsPerRow = other.wordsPerRow;
+		lastWordMask = other.lastWordMask;
+		words = other.words.clone();
+	}
+
+	/**
+	 * Returns whether the bit at the given coordinates is set.
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @return Whether the bit is set.
+	 */
+	public boolean get(int x, int y)
+	{
+		return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0L;
+	}
+
+	/**
+	 * Sets or clears the bit at the given coordinates.
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @param value Whether to set the bit.
+	 */
+	public void set(int x, int y, boolean value)
+	{
+		int index = y * wordsPerRow + (x >>> 6);
+
+		if (value)
+		{
+			words[index] |= 1L << x;
+		}
+		else
+		{
+			words[index] &= ~(1L << x);
+		}
+	}
+
+	/**
+	 * Sets or clears all bits.
+	 * @param value Whether to set the bits.
+	 */
+	public void fill(boolean value)
+	{
+		if (!value)
+		{
+			Arrays.fill(words, 0L);
+			return;
+		}
+
+		Arrays.fill(words, -1L);
+
+		// Keep the padding at the end of each row cleared.
+		for (int y = 0; y < height; y++)
+		{
+			words[y * wordsPerRow + wordsPerRow - 1] = lastWordMask;
+		}
+	}
+
+	/**
+	 * Sets every bit that is set in the given matrix of the same size.
+	 * @param other The other matrix.
+	 */
+	public void or(BitMatrix other)
+	{
+		for (int i = 0; i < words.length; i++)
+		{
+			words[i] |= other.words[i];
+		}
+	}
+
+	/**
+	 * Sets every bit that is set in a smaller matrix placed at the given position,
+	 * a word at a time. Bits of the other matrix that fall outside of this one are ignored.
+	 * @param other The other matrix.
+	 * @param x The x-coordinate in this matrix of bit (0, 0) of the other matrix.
+	 * @param y The y-coordinate in this matrix of bit (0, 0) of the other matrix.
+	 * @return The bounds of the bits that were not set before, or null if there were none.
+	 */
+	public Rectangle or(BitMatrix other, int x, int y)
+	{
+		int minX = width;
+		int minY = height;
+		int maxX = -1;
+		int maxY = -1;
+
+		for (int row = Math.max(0, -y), rowEnd = Math.min(other.height, height - y); row < rowEnd; row++)
+		{
+			int targetRow = (y + row) * wordsPerRow;
+
+			for (int i = 0; i < other.wordsPerRow; i++)
+			{
+				long word = other.words[row * other.wordsPerRow + i];
+				int column = x + (i << 6); // column in this matrix of the first bit of the word
+
+				// Drop the bits left of this matrix.
+				if (column < 0)
+				{
+					word = column <= -64 ? 0L : word >>> -column;
+					column = 0;
+				}
+
+				// Drop the bits right of this matrix.
+				if (word == 0L || column >= width)
+				{
+					continue;
+				}
+
+				if (width - column < 64)
+				{
+					word &= (1L << (width - column)) - 1L;
+				}
+
+				int index = targetRow + (column >>> 6);
+				int shift = column & 63;
+				long low = word << shift;
+				long high = shift == 0 ? 0L : word >>> (64 - shift);
+				long added = 0L;
+
+				// The word can straddle two words of this matrix.
+				if ((low & ~words[index]) != 0L)
+				{
+					added = low & ~words[index];
+					words[index] |= low;
+
+					int first = ((index - targetRow) << 6) + Long.numberOfTrailingZeros(added);
+					int last = ((index - targetRow) << 6) + 63 - Long.numberOfLeadingZeros(added);
+					minX = Math.min(minX, first);
+					maxX = Math.max(maxX, last);
+				}
+
+				if (high != 0L && (high & ~words[index + 1]) != 0L)
+				{
+					added = high & ~words[index + 1];
+					words[index + 1] |= high;
+
+					int first = ((index + 1 - targetRow) << 6) + Long.numberOfTrailingZeros(added);
+					int last = ((index + 1 - targetRow) << 6) + 63 - Long.numberOfLeadingZeros(added);
+					minX = Math.min(minX, first);
+					maxX = Math.max(maxX, last);
+				}
+
+				if (added != 0L)
+				{
+					minY = Math.min(minY, y + row);
+					maxY = y + row;
+				}
+			}
+		}
+
+		return maxX < 0 ? null : new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+	}
+
+	/**
+	 * Returns the number of set bits.
+	 * @return The count.
+	 */
+	public int count()
+	{
+		int count = 0;
+
+		for (int i = 0; i < words.length; i++)
+		{
+			count += Long.bitCount(words[i]);
+		}
+
+		return count;
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return The width of the matrix.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * @return The height of the matrix.
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+	/**
+	 * @return The number of words used for each row.
+	 */
+	public int getWordsPerRow()
+	{
+		return wordsPerRow;
+	}
+
+	/**
+	 * Returns the words backing this matrix, row by row.
+	 * Bit x of a row is stored in bit (x % 64) of word (x / 64) of the row.
+	 * @return The words.
+	 */
+	public long[] getWords()
+	{
+		return words;
+	}
+}
@@ -0,0 +1,328 @@
+package gridwhack.util;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary heap class file.
+ * Min-heap of integer ids ordered by a primary and a secondary key,
+ * which allows for looking up, updating and removing ids in logarithmic time.
+ * @author Christoffer Niska <ChristofferNiska@gmail.com>
+ * @license New BSD License http://www.opensource.org/licenses/bsd-license.php
+ */
+public class IndexedBinaryHeap
+{
+	// ----------
+	// Properties
+	// ----------
+
+	private int[] heap; // ids in heap order
+	private int[] positions; // heap position for each id, -1 if not in the heap
+	private float[] keys;
+	private float[] tieBreaks;
+	private int size;
+
+	// -------
+	// Methods
+	// -------
+
+	/**
+	 * Creates the heap.
+	 * @param capacity The number of ids that the heap can hold (ids range from 0 to capacity-1).
+	 */
+	public IndexedBinaryHeap(int capacity)
+	{
+		heap = new int[capacity];
+		positions = new int[capacity];
+		keys = new float[capacity];
+		tieBreaks = new float[capacity];
+		size = 0;
+
+		Arrays.fill(positions, -1);
+	}
+
+	/**
+	 * Makes sure that the heap can hold the given number of ids.
+	 * Growing the heap empties it.
+	 * @param capacity The capacity.
+	 */
+	public void ensureCapacity(int capacity)
+	{
+		if (capacity > positions.length)
+		{
+			heap = new int[capacity];
+			positions = new int[capacity];
+			keys = new float[capacity];
+			tieBreaks = new float[capacity];
+			size = 0;
+
+			Arrays.fill(positions, -1);
+		}
+	}
+
+	/**
+	 * Empties the heap.
+	 * Only the ids currently in the heap are touched.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < size; i++)
+		{
+			positions[heap[i]] = -1;
+		}
+
+		size = 0;
+	}
+
+	/**
+	 * Adds an id to the heap or updates its keys if it is already in the heap.
+	 * @param id The id.
+	 * @param key The primary key.
+	 * @param tieBreak The secondary key used when the primary keys are equal.
+	 */
+	public void add(int id, float key, float tieBreak)
+	{
+		if (positions[id] != -1)
+		{
+			update(id, key, tieBreak);
+			return;
+		}
+
+		keys[id] = key;
+		tieBreaks[id] = tieBreak;
+		heap[size] = id;
+		positions[id] = size;
+		siftUp(size++);
+	}
+
+	/**
+	 * Updates the keys of an id in the heap.
+	 * @param id The id.
+	 * @param key The new primary key.
+	 * @param tieBreak The new secondary key.
+	 */
+	public void update(int id, float key, float tieBreak)
+	{
+		int position = positions[id];
+
+		if (position != -1)
+		{
+			boolean decreased = compare(key, tieBreak, keys[id], tieBreaks[id]) < 0;
+
+			keys[id] = key;
+			tieBreaks[id] = tieBreak;
+
+			if (decreased)
+			{
+				siftUp(position);
+			}
+			else
+			{
+				siftDown(position);
+			}
+		}
+	}
+
+	/**
+	 * Removes and returns the id with the lowest keys.
+	 * @return The id, or -1 if the heap is empty.
+	 */
+	public int poll()
+	{
+		if (size == 0)
+		{
+			return -1;
+		}
+
+		int top = heap[0];
+		removeAt(0);
+		return top;
+	}
+
+	/**
+	 * Removes a specific id from the heap.
+	 * @param id The id.
+	 */
+	public void remove(int id)
+	{
+		int position = positions[id];
+
+		if (position != -1)
+		{
+			removeAt(position);
+		}
+	}
+
+	/**
+	 * Removes the id in the given heap position.
+	 * @param position The heap position.
+	 */
+	private void removeAt(int position)
+	{
+		int id = heap[position];
+		int last = heap[--size];
+
+		positions[id] = -1;
+
+		// The last id takes the place of the removed id unless we removed the last id.
+		if (position < size)
+		{
+			heap[position] = last;
+			positions[last] = position;
+			siftUp(position);
+			siftDown(positions[last]);
+		}
+	}
+
+	/**
+	 * Moves the id in the given position up until the heap is in order.
+	 * @param position The heap position.
+	 */
+	private void siftUp(int position)
+	{
+		int id = heap[position];
+
+		while (position > 0)
+		{
+			int parentPosition = (position - 1) >> 1;
+			int parent = heap[parentPosition];
+
+			if (compare(keys[id], tieBreaks[id], keys[parent], tieBreaks[parent]) >= 0)
+			{
+				break;
+			}
+
+			heap[position] = parent;
+			positions[parent] = position;
+			position = parentPosition;
+		}
+
+		heap[position] = id;
+		positions[id] = position;
+	}
+
+	/**
+	 * Moves the id in the given position down until the heap is in order.
+	 * @param position The heap position.
+	 */
+	private void siftDown(int position)
+	{
+		int id = heap[position];
+		int half = size >> 1;
+
+		while (position < half)
+		{
+			int childPosition = (position << 1) + 1;
+			int child = heap[childPosition];
+			int rightPosition = childPosition + 1;
+
+			// Pick the smaller one of the two children.
+			if (rightPosition < size
+					&& compare(keys[heap[rightPosition]], tieBreaks[heap[rightPosition]], keys[child], tieBreaks[child]) < 0)
+			{
+				childPosition = rightPosition;
+				child = heap[childPosition];
+			}
+
+			if (compare(keys[id], tieBreaks[id], keys[child], tieBreaks[child]) <= 0)
+			{
+				break;
+			}
+
+			heap[position] = child;
+			positions[child] = position;
+			position = childPosition;
+		}
+
+		heap[position] = id;
+		positions[id] = position;
+	}
+
+	/**
+	 * Compares two key pairs lexicographically.
+	 * @return A negative value if the first pair is lower, a positive value if it is higher and zero if equal.
+	 */
+	private static int compare(float key1, float tieBreak1, float key2, float tieBreak2)
+	{
+		if (key1 < key2)
+		{
+			return -1;
+		}
+		else if (key1 > key2)
+		{
+			return 1;
+		}
+		else if (tieBreak1 < tieBreak2)
+		{
+			return -1;
+		}
+		else if (tieBreak1 > tieBreak2)
+		{
+			return 1;
+		}
+		else
+		{
+			return 0;
+		}
+	}
+
+	// -------------------
+	// Getters and setters
+	// -------------------
+
+	/**
+	 * @return Whether the heap is empty.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * @return The number of ids in the heap.
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * @param id The id.
+	 * @return Whether the heap contains the id.
+	 */
+	public boolean contains(int id)
+	{
+		return positions[id] != -1;
+	}
+
+	/**
+	 * @return The id with the lowest keys, or -1 if the heap is empty.
+	 */
+	public int peek()
+	{
+		return size > 0 ? heap[0] : -1;
+	}
+
+	/**
+	 * @return The primary key of the top id.
+	 */
+	public float getTopKey()
+	{
+		return size > 0 ? keys[heap[0]] : Float.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * @return The secondary key of the top id.
+	 */
+	public float getTopTieBreak()
+	{
+		return size > 0 ? tieBreaks[heap[0]] : Float.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * @return The capacity of this heap.
+	 */
+	public int getCapacity()
+	{
+		return positions.length;
+	}
+}